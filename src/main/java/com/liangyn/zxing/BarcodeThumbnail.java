@@ -0,0 +1,110 @@
+package com.liangyn.zxing;
+
+import android.graphics.Bitmap;
+import android.os.Bundle;
+
+import java.nio.ShortBuffer;
+
+/**
+ * 识别成功时扫描框区域的灰度数据
+ * 说明：解码线程只复制一份亮度数据随结果发送，不再同步生成 Bitmap；
+ * 需要显示时调用 {@link #getBitmap()} 或 {@link #renderInto(Bitmap)} 才会在调用线程中生成 RGB_565 位图。
+ */
+public final class BarcodeThumbnail {
+
+    static final String BARCODE_LUMINANCE = "barcode_luminance";
+    static final String BARCODE_WIDTH = "barcode_width";
+    static final String BARCODE_HEIGHT = "barcode_height";
+
+    private final byte[] luminances;
+    private final int width;
+    private final int height;
+    private Bitmap bitmap;
+    /**
+     * RGB_565 像素，第一次绘制时由灰度数据换算，之后每次绘制直接复用
+     */
+    private ShortBuffer pixels;
+
+    BarcodeThumbnail(byte[] luminances, int width, int height) {
+        this.luminances = luminances;
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * 将亮度数据放入解码结果的 Bundle，luminances 必须是解码线程不再使用的副本
+     */
+    static void putInto(Bundle bundle, byte[] luminances, int width, int height) {
+        bundle.putByteArray(BARCODE_LUMINANCE, luminances);
+        bundle.putInt(BARCODE_WIDTH, width);
+        bundle.putInt(BARCODE_HEIGHT, height);
+    }
+
+    /**
+     * @return Bundle 中没有亮度数据时返回 null
+     */
+    static BarcodeThumbnail fromBundle(Bundle bundle) {
+        if (bundle == null) {
+            return null;
+        }
+        byte[] luminances = bundle.getByteArray(BARCODE_LUMINANCE);
+        if (luminances == null) {
+            return null;
+        }
+        return new BarcodeThumbnail(luminances, bundle.getInt(BARCODE_WIDTH),
+                bundle.getInt(BARCODE_HEIGHT));
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * 按行存放的灰度数据，长度至少为 width * height
+     */
+    public byte[] getLuminances() {
+        return luminances;
+    }
+
+    /**
+     * 第一次调用时生成位图，之后返回同一个
+     */
+    public Bitmap getBitmap() {
+        if (bitmap == null) {
+            bitmap = renderInto(null);
+        }
+        return bitmap;
+    }
+
+    /**
+     * 将灰度数据绘制到 reuse 中；reuse 为空或尺寸、格式不符时新建一个 RGB_565 位图
+     *
+     * @return 绘制后的位图
+     */
+    public Bitmap renderInto(Bitmap reuse) {
+        Bitmap target = reuse;
+        if (target == null || !target.isMutable() || target.getWidth() != width
+                || target.getHeight() != height
+                || target.getConfig() != Bitmap.Config.RGB_565) {
+            target = Bitmap.createBitmap(width, height, Bitmap.Config.RGB_565);
+        }
+        if (pixels == null) {
+            int area = width * height;
+            short[] rgb565 = new short[area];
+            for (int i = 0; i < area; i++) {
+                int grey = luminances[i] & 0xff;
+                rgb565[i] = (short) (((grey >> 3) << 11) | ((grey >> 2) << 5) | (grey >> 3));
+            }
+            pixels = ShortBuffer.wrap(rgb565);
+        }
+        // copyPixelsFromBuffer 会移动缓冲区的位置
+        pixels.rewind();
+        target.copyPixelsFromBuffer(pixels);
+        return target;
+    }
+
+}
@@ -0,0 +1,74 @@
+package com.liangyn.zxing;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+
+import com.google.zxing.LuminanceSource;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * 用 BitmapFactory 读取 JPEG、PNG 等图片，供 {@link BulkDecoder} 批量解码
+ * 说明：逐行取像素换算为灰度，不保留整张图片的 ARGB 数组；
+ * 可限制最长边，超过时按 2 的幂缩小后读取，减少大照片的内存和解码耗时。
+ */
+public final class BitmapLuminanceLoader implements BulkDecoder.ImageLoader {
+
+    private final int maxDimension;
+
+    /**
+     * 按原尺寸读取
+     */
+    public BitmapLuminanceLoader() {
+        this(0);
+    }
+
+    /**
+     * @param maxDimension 最长边超过该值时缩小读取，0 为不限制
+     */
+    public BitmapLuminanceLoader(int maxDimension) {
+        this.maxDimension = maxDimension;
+    }
+
+    @Override
+    public LuminanceSource load(File file) throws IOException {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        if (maxDimension > 0) {
+            options.inJustDecodeBounds = true;
+            BitmapFactory.decodeFile(file.getPath(), options);
+            int sampleSize = 1;
+            while (Math.max(options.outWidth, options.outHeight) / sampleSize > maxDimension) {
+                sampleSize <<= 1;
+            }
+            options = new BitmapFactory.Options();
+            options.inSampleSize = sampleSize;
+        }
+        Bitmap bitmap = BitmapFactory.decodeFile(file.getPath(), options);
+        if (bitmap == null) {
+            throw new IOException("Could not decode image: " + file);
+        }
+        try {
+            int width = bitmap.getWidth();
+            int height = bitmap.getHeight();
+            byte[] luminances = new byte[width * height];
+            int[] row = new int[width];
+            for (int y = 0; y < height; y++) {
+                bitmap.getPixels(row, 0, width, 0, y, width, 1);
+                int offset = y * width;
+                for (int x = 0; x < width; x++) {
+                    int pixel = row[x];
+                    // 与 RGBLuminanceSource 相同的近似：(R + 2G + B) / 4
+                    int r = (pixel >> 16) & 0xFF;
+                    int g = (pixel >> 8) & 0xFF;
+                    int b = pixel & 0xFF;
+                    luminances[offset + x] = (byte) ((r + (g << 1) + b) >> 2);
+                }
+            }
+            return new PlanarYUVLuminanceSource(luminances, width, height, 0, 0, width, height);
+        } finally {
+            bitmap.recycle();
+        }
+    }
+
+}
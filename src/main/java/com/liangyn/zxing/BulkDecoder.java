@@ -0,0 +1,327 @@
+package com.liangyn.zxing;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.Result;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+
+/**
+ * 批量解码已保存的图片（如签收照片），格式和字符集设置与实时扫码相同
+ * 说明：图片在 ForkJoinPool 中并行加载和解码，每个工作线程持有自己的 {@link DecodeEngine}
+ * （静态图片模式），线程之间除统计外不共享状态。结果按完成顺序通过 {@link Results} 逐个取出；
+ * 在途（已提交未取走）的图片数不超过 capacity，调用方取得慢时自动暂停加载新图片。
+ * 遍历中调用 {@link #close()} 时，未完成的图片被放弃，遍历以一个错误项结束而不会一直等待。
+ * 不依赖 Android，图片的读取方式由 {@link ImageLoader} 决定。
+ */
+public final class BulkDecoder implements Closeable {
+
+    /**
+     * 默认最多多少张图片在途
+     */
+    public static final int DEFAULT_CAPACITY = 64;
+
+    private final Vector<BarcodeFormat> decodeFormats;
+    private final String characterSet;
+    private final ImageLoader loader;
+    private final ForkJoinPool pool;
+    private final int capacity;
+    private final DecodeProfile profile;
+    private final DecodeMetrics metrics;
+    /**
+     * 尚未结束的遍历，关闭时逐个终止
+     */
+    private final Set<Results> open = new HashSet<Results>();
+    private boolean closed;
+    private final ThreadLocal<DecodeEngine> engines = new ThreadLocal<DecodeEngine>() {
+        @Override
+        protected DecodeEngine initialValue() {
+            DecodeEngine engine = new DecodeEngine(decodeFormats, characterSet, null, null,
+                    new FramePreFilter(), metrics, profile);
+            engine.setStillImageMode(true);
+            return engine;
+        }
+    };
+
+    public BulkDecoder(Collection<BarcodeFormat> decodeFormats, String characterSet,
+                       ImageLoader loader) {
+        this(decodeFormats, characterSet, DecodeProfile.BALANCED, loader,
+                Runtime.getRuntime().availableProcessors(), DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param decodeFormats 要识别的格式，为 null 时使用解码配置的格式，见 {@link DecodeFormats}
+     * @param characterSet  同 {@link Intents.Scan#CHARACTER_SET}，可为 null
+     * @param profile       解码提示等配置，如纯条码图片可用 {@link DecodeProfile#PURE}
+     * @param parallelism   并行解码的线程数
+     * @param capacity      最多多少张图片在途（加载中、解码中或等待取走）
+     */
+    public BulkDecoder(Collection<BarcodeFormat> decodeFormats, String characterSet,
+                       DecodeProfile profile, ImageLoader loader, int parallelism, int capacity) {
+        this.decodeFormats = new Vector<BarcodeFormat>(
+                DecodeEngine.resolveFormats(decodeFormats, profile));
+        this.characterSet = characterSet;
+        this.profile = profile;
+        this.loader = loader;
+        this.capacity = Math.max(1, capacity);
+        pool = new ForkJoinPool(Math.max(1, parallelism));
+        List<Vector<BarcodeFormat>> groups = DecodeFormats.splitFormatGroups(this.decodeFormats);
+        metrics = new DecodeMetrics(DecodeFormats.formatGroupNames(groups));
+    }
+
+    /**
+     * 解码目录下的所有文件（不含子目录），按文件名排序提交
+     */
+    public Results decodeDirectory(File directory) throws IOException {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            throw new IOException("Not a directory: " + directory);
+        }
+        Arrays.sort(files);
+        return decode(Arrays.asList(files));
+    }
+
+    /**
+     * 解码一组文件，可以是惰性产生的序列；目录和不存在的文件作为失败项返回
+     */
+    public Results decode(Iterable<File> files) {
+        final Results results = new Results(capacity);
+        final Iterator<File> iterator = files.iterator();
+        Thread feeder = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                results.feed(iterator);
+            }
+        }, "BulkDecoder-feeder");
+        feeder.setDaemon(true);
+        results.feeder = feeder;
+        synchronized (open) {
+            if (closed) {
+                results.abort();
+                return results;
+            }
+            open.add(results);
+        }
+        feeder.start();
+        return results;
+    }
+
+    /**
+     * 所有工作线程共享的耗时统计
+     */
+    public DecodeMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * 停止工作线程，未完成的图片被放弃；未结束的遍历取完已完成的结果后，
+     * 以一个 CancellationException 错误项结束
+     */
+    @Override
+    public void close() {
+        List<Results> aborted;
+        synchronized (open) {
+            closed = true;
+            aborted = new ArrayList<Results>(open);
+            open.clear();
+        }
+        pool.shutdownNow();
+        for (Results results : aborted) {
+            results.abort();
+        }
+    }
+
+    private Item decodeFile(File file) {
+        try {
+            LuminanceSource source = loader.load(file);
+            int width = source.getWidth();
+            int height = source.getHeight();
+            Result result = engines.get().decode(source.getMatrix(), width, height, 0,
+                    0, 0, width, height);
+            return new Item(file, result, null);
+        } catch (IOException e) {
+            return new Item(file, null, e);
+        } catch (RuntimeException e) {
+            return new Item(file, null, e);
+        }
+    }
+
+    /**
+     * 把文件读成亮度数据，在工作线程中调用，须可并发调用
+     */
+    public interface ImageLoader {
+
+        LuminanceSource load(File file) throws IOException;
+
+    }
+
+    /**
+     * 读取原始亮度文件：文件开头 width * height 字节为 Y 平面（NV21 帧或 8 位灰度图均可）
+     */
+    public static ImageLoader rawLuminanceLoader(final int width, final int height) {
+        return new ImageLoader() {
+            @Override
+            public LuminanceSource load(File file) throws IOException {
+                byte[] data = new byte[width * height];
+                InputStream in = new FileInputStream(file);
+                try {
+                    int read = 0;
+                    while (read < data.length) {
+                        int n = in.read(data, read, data.length - read);
+                        if (n < 0) {
+                            throw new IOException("Expected " + data.length + " bytes in " + file
+                                    + ", got " + read);
+                        }
+                        read += n;
+                    }
+                } finally {
+                    in.close();
+                }
+                return new PlanarYUVLuminanceSource(data, width, height, 0, 0, width, height);
+            }
+        };
+    }
+
+    /**
+     * 一张图片的解码结果
+     */
+    public static final class Item {
+
+        private final File file;
+        private final Result result;
+        private final Exception error;
+
+        Item(File file, Result result, Exception error) {
+            this.file = file;
+            this.result = result;
+            this.error = error;
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        /**
+         * 识别结果，没有识别到或出错时为 null
+         */
+        public Result getResult() {
+            return result;
+        }
+
+        /**
+         * 读取或解码时的错误，没有时为 null
+         */
+        public Exception getError() {
+            return error;
+        }
+
+    }
+
+    /**
+     * 按完成顺序逐个取出结果，只能在一个线程中遍历
+     */
+    public final class Results implements Iterator<Item> {
+
+        private final Item end = new Item(null, null, null);
+        private final Semaphore inFlight;
+        private final int permits;
+        private final BlockingQueue<Item> completed = new LinkedBlockingQueue<Item>();
+        private Item next;
+        private Thread feeder;
+
+        Results(int capacity) {
+            permits = capacity;
+            inFlight = new Semaphore(capacity);
+        }
+
+        /**
+         * 在提交线程中运行：每提交一张先占一个名额，结果被取走时归还
+         */
+        void feed(Iterator<File> files) {
+            try {
+                while (files.hasNext()) {
+                    final File file = files.next();
+                    inFlight.acquire();
+                    pool.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            completed.add(decodeFile(file));
+                        }
+                    });
+                }
+                // 所有名额都归还后，说明提交的结果已全部取走
+                inFlight.acquire(permits);
+            } catch (InterruptedException e) {
+                // 被 abort 中断，结束标记由 abort 加入
+                return;
+            } catch (RuntimeException e) {
+                completed.add(new Item(null, null, e));
+            }
+            synchronized (open) {
+                open.remove(this);
+            }
+            completed.add(end);
+        }
+
+        /**
+         * 解码器关闭：停止提交，已排队未执行的图片不会再有结果，直接结束遍历
+         */
+        void abort() {
+            feeder.interrupt();
+            completed.add(new Item(null, null, new CancellationException("BulkDecoder closed")));
+            completed.add(end);
+        }
+
+        /**
+         * 等待下一个结果
+         */
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                try {
+                    next = completed.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    next = end;
+                }
+            }
+            return next != end;
+        }
+
+        @Override
+        public Item next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Item item = next;
+            next = null;
+            inFlight.release();
+            return item;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+    }
+
+}
@@ -29,9 +29,9 @@ public final class CameraAutoFocusCallback implements Camera.AutoFocusCallback {
 	private static final String TAG = CameraAutoFocusCallback.class.getName();
 
 	/**
-	 * 设定每多少毫秒自动对焦一次
+	 * 两次自动对焦之间至少间隔多少毫秒
 	 */
-	private static final long AUTOFOCUS_PER_MILLIS = 1500L;
+	static final long AUTOFOCUS_PER_MILLIS = 1500L;
 
 	private Handler autoFocusHandler;
 	private int autoFocusMessage;
@@ -44,7 +44,7 @@ public final class CameraAutoFocusCallback implements Camera.AutoFocusCallback {
 	public void onAutoFocus(boolean success, Camera camera) {
 		if (autoFocusHandler != null) {
 			Message message = autoFocusHandler.obtainMessage(autoFocusMessage, success);
-			autoFocusHandler.sendMessageDelayed(message, AUTOFOCUS_PER_MILLIS);
+			message.sendToTarget();
 			autoFocusHandler = null;
 		} else {
 			Log.d(TAG, "Got auto-focus callback, but no handler for it");
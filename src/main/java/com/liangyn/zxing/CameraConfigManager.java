@@ -24,6 +24,8 @@ import android.util.Log;
 import android.view.Display;
 import android.view.WindowManager;
 
+import com.liangyn.zxing.utils.DensityUtil;
+
 import java.util.regex.Pattern;
 
 final class CameraConfigManager {
@@ -52,12 +54,18 @@ final class CameraConfigManager {
 		Camera.Parameters parameters = camera.getParameters();
 		previewFormat = parameters.getPreviewFormat();
 		previewFormatString = parameters.get("preview-format");
+		initScreenResolution();
+		cameraResolution = getCameraResolution(parameters, screenResolution);
+	}
 
+	/**
+	 * 只读取屏幕分辨率，用于不打开相机（使用其他帧来源）的情况
+	 */
+	void initScreenResolution() {
 		WindowManager winMgr = (WindowManager) context
 				.getSystemService(Context.WINDOW_SERVICE);
 		Display display = winMgr.getDefaultDisplay();
 		screenResolution = new Point(display.getWidth(), display.getHeight());
-		cameraResolution = getCameraResolution(parameters, screenResolution);
 	}
 
 	/**
@@ -95,7 +103,7 @@ final class CameraConfigManager {
 		return previewFormatString;
 	}
 
-	private static Point getCameraResolution(Camera.Parameters parameters,
+	private Point getCameraResolution(Camera.Parameters parameters,
 			Point screenResolution) {
 
 		String previewSizeValueString = parameters.get("preview-size-values");
@@ -109,8 +117,18 @@ final class CameraConfigManager {
 		if (previewSizeValueString != null) {
 			Log.d(TAG, "preview-size-values parameter: "
 					+ previewSizeValueString);
-			cameraResolution = findBestPreviewSizeValue(previewSizeValueString,
-					screenResolution);
+			// 按扫描框内条码需要的分辨率选择，而不是最接近屏幕的尺寸，减少每帧的解码量
+			int[] size = PreviewSizePolicy.findBestPreviewSize(previewSizeValueString,
+					screenResolution.x, screenResolution.y,
+					DensityUtil.dip2px(context, CameraManager.FRAME_WIDTH_DIP),
+					DensityUtil.dip2px(context, CameraManager.FRAME_HEIGHT_DIP),
+					PreviewSizePolicy.DEFAULT_MODULES_ACROSS,
+					PreviewSizePolicy.DEFAULT_MIN_PIXELS_PER_MODULE,
+					PreviewSizePolicy.DEFAULT_MAX_CROP_PIXELS,
+					PreviewSizePolicy.DEFAULT_MIN_PREVIEW_HEIGHT);
+			if (size != null) {
+				cameraResolution = new Point(size[0], size[1]);
+			}
 		}
 
 		if (cameraResolution == null) {
@@ -123,48 +141,6 @@ final class CameraConfigManager {
 		return cameraResolution;
 	}
 
-	private static Point findBestPreviewSizeValue(
-			CharSequence previewSizeValueString, Point screenResolution) {
-		int bestX = 0;
-		int bestY = 0;
-		int diff = Integer.MAX_VALUE;
-		for (String previewSize : COMMA_PATTERN.split(previewSizeValueString)) {
-
-			previewSize = previewSize.trim();
-			int dimPosition = previewSize.indexOf('x');
-			if (dimPosition < 0) {
-				continue;
-			}
-
-			int newX;
-			int newY;
-			try {
-				newX = Integer.parseInt(previewSize.substring(0, dimPosition));
-				newY = Integer.parseInt(previewSize.substring(dimPosition + 1));
-			} catch (NumberFormatException nfe) {
-				continue;
-			}
-
-			int newDiff = Math.abs(newX - screenResolution.x)
-					+ Math.abs(newY - screenResolution.y);
-			if (newDiff == 0) {
-				bestX = newX;
-				bestY = newY;
-				break;
-			} else if (newDiff < diff) {
-				bestX = newX;
-				bestY = newY;
-				diff = newDiff;
-			}
-
-		}
-
-		if (bestX > 0 && bestY > 0) {
-			return new Point(bestX, bestY);
-		}
-		return null;
-	}
-
 	private static int findBestMotZoomValue(CharSequence stringValues,
 			int tenDesiredZoom) {
 		int tenBestValue = 0;
@@ -38,8 +38,8 @@ public final class CameraManager {
 
 //	private static final String TAG = CameraManager.class.getName();
 
-	private static final int FRAME_WIDTH_DIP = 280;
-	private static final int FRAME_HEIGHT_DIP= 120;
+	static final int FRAME_WIDTH_DIP = 280;
+	static final int FRAME_HEIGHT_DIP= 120;
 
 	private static CameraManager cameraMgr;
 
@@ -70,6 +70,10 @@ public final class CameraManager {
 	private boolean cameraInited;
 	private boolean cameraPreviewing;
 	private final boolean useOneShotPreviewCallback;
+	/**
+	 * 是否正在通过预分配的缓冲区连续接收预览帧
+	 */
+	private boolean previewBuffered;
 	
 	/**
 	 * 通过调用camera.setPreviewDisplay(surfaceHolder)方法注册，预览界面会回掉该Callback。
@@ -82,6 +86,11 @@ public final class CameraManager {
 	 */
 	private final CameraAutoFocusCallback autoFocusCallback;
 
+	/**
+	 * 替代相机的预览帧来源，为 null 时使用相机
+	 */
+	private FrameSource frameSource;
+
 	/**
 	 * 在调用的Activity中调用该方法初始化本类实例
 	 * @param context
@@ -113,8 +122,12 @@ public final class CameraManager {
 	 * @throws IOException 摄像头驱动异常，设备打开失败
 	 */
 	public void openDriver(SurfaceHolder holder) throws IOException {
-		if (camera == null) {
+		if (frameSource != null) {
+			configMgr.initScreenResolution();
+		} else if (camera == null) {
+			long openBegin = ScanTrace.begin();
 			camera = Camera.open();
+			ScanTrace.end("Camera.open", openBegin);
 			if (camera == null) {
 				throw new IOException();
 			}
@@ -122,9 +135,13 @@ public final class CameraManager {
 
 			if (!cameraInited) {
 				cameraInited = true;
+				long initBegin = ScanTrace.begin();
 				configMgr.initFromCameraParameters(camera);
+				ScanTrace.end("initFromCameraParameters", initBegin);
 			}
+			long configBegin = ScanTrace.begin();
 			configMgr.setDesiredCameraParameters(camera);
+			ScanTrace.end("setDesiredCameraParameters", configBegin);
 
 			/*mParameters = camera.getParameters();
 			String flashMode = Camera.Parameters.FLASH_MODE_TORCH;
@@ -147,6 +164,9 @@ public final class CameraManager {
 	 * 关闭摄像头驱动
 	 */
 	public void closeDriver() {
+		if (frameSource != null) {
+			frameSource.stop();
+		}
 		if (camera != null) {
 			/*
 			mParameters.setFlashMode(Parameters.FLASH_MODE_OFF);
@@ -162,8 +182,12 @@ public final class CameraManager {
 	 * 启动拍照预览界面
 	 */
 	public void startPreview() {
-		if (camera != null && !cameraPreviewing) {
+		if (frameSource != null) {
+			cameraPreviewing = true;
+		} else if (camera != null && !cameraPreviewing) {
+			long begin = ScanTrace.begin();
 			camera.startPreview();
+			ScanTrace.end("Camera.startPreview", begin);
 			cameraPreviewing = true;
 		}
 	}
@@ -172,8 +196,15 @@ public final class CameraManager {
 	 * 结束拍照预览界面
 	 */
 	public void stopPreview() {
-		if (camera != null && cameraPreviewing) {
-			if (!useOneShotPreviewCallback) {
+		if (frameSource != null) {
+			frameSource.stop();
+			previewBuffered = false;
+			cameraPreviewing = false;
+		} else if (camera != null && cameraPreviewing) {
+			if (previewBuffered) {
+				camera.setPreviewCallbackWithBuffer(null);
+				previewBuffered = false;
+			} else if (!useOneShotPreviewCallback) {
 				camera.setPreviewCallback(null);
 			}
 			camera.stopPreview();
@@ -184,7 +215,11 @@ public final class CameraManager {
 	}
 
 	public void requestPreviewFrame(Handler handler, int message) {
-		if (camera != null && cameraPreviewing) {
+		if (frameSource != null) {
+			if (cameraPreviewing) {
+				frameSource.requestFrame(new HandlerFrameCallback(handler, message));
+			}
+		} else if (camera != null && cameraPreviewing) {
 			previewCallback.setHandler(handler, message);
 			if (useOneShotPreviewCallback) {
 				camera.setOneShotPreviewCallback(previewCallback);
@@ -194,13 +229,57 @@ public final class CameraManager {
 		}
 	}
 
+	/**
+	 * 连续接收预览帧：预分配 bufferCount 个缓冲区交给相机轮流填充，
+	 * 每一帧都发送给 handler，处理完后必须调用 {@link #releasePreviewFrame(byte[])} 归还，
+	 * 否则相机没有空闲缓冲区时会丢弃新帧。
+	 * @param handler	接收预览帧的 Handler，message.obj 为帧数据
+	 * @param message
+	 * @param bufferCount	缓冲区个数
+	 */
+	public void startPreviewFrames(Handler handler, int message, int bufferCount) {
+		if (frameSource != null) {
+			if (cameraPreviewing && !previewBuffered) {
+				frameSource.start(new HandlerFrameCallback(handler, message), bufferCount);
+				previewBuffered = true;
+			}
+		} else if (camera != null && cameraPreviewing && !previewBuffered) {
+			Point cameraResolution = configMgr.getCameraResolution();
+			int bitsPerPixel = ImageFormat.getBitsPerPixel(configMgr.getPreviewFormat());
+			if (bitsPerPixel <= 0) {
+				bitsPerPixel = 12; // yuv420p
+			}
+			int frameSize = cameraResolution.x * cameraResolution.y * bitsPerPixel / 8;
+			for (int i = 0; i < bufferCount; i++) {
+				camera.addCallbackBuffer(new byte[frameSize]);
+			}
+			previewCallback.setHandler(handler, message, true);
+			camera.setPreviewCallbackWithBuffer(previewCallback);
+			previewBuffered = true;
+		}
+	}
+
+	/**
+	 * 将 {@link #startPreviewFrames(Handler, int, int)} 发出的帧缓冲区归还给相机
+	 */
+	public void releasePreviewFrame(byte[] data) {
+		if (frameSource != null) {
+			frameSource.releaseFrame(data);
+		} else if (camera != null && previewBuffered && data != null) {
+			camera.addCallbackBuffer(data);
+		}
+	}
+
 	/**
 	 * 发送自动对焦请求
 	 * @param handler	自动对焦完成后发送Handler
 	 * @param message
 	 */
 	public void requestAutoFocus(Handler handler, int message) {
-		if (camera != null && cameraPreviewing) {
+		if (frameSource != null) {
+			// 回放的帧无需对焦，直接通知对焦结束
+			handler.sendEmptyMessage(message);
+		} else if (camera != null && cameraPreviewing) {
 			autoFocusCallback.setHandler(handler, message);
 			camera.autoFocus(autoFocusCallback);
 		}
@@ -217,7 +296,7 @@ public final class CameraManager {
 	public Rect getFrameRect() {
 		Point screenResolution = configMgr.getScreenResolution();
 		if (frameRect == null) {
-			if (camera == null) {
+			if (camera == null && frameSource == null) {
 				return null;
 			}
 			int width = DensityUtil.dip2px(context, FRAME_WIDTH_DIP);
@@ -236,7 +315,9 @@ public final class CameraManager {
 	public Rect getFrameRectInPreview() {
 		if (frameRectOfPreview == null) {
 			Rect rect = new Rect(getFrameRect());
-			Point cameraResolution = configMgr.getCameraResolution();
+			Point cameraResolution = frameSource != null
+					? new Point(frameSource.getWidth(), frameSource.getHeight())
+					: configMgr.getCameraResolution();
 			Point screenResolution = configMgr.getScreenResolution();
 			rect.left = rect.left * cameraResolution.y / screenResolution.x;
 			rect.right = rect.right * cameraResolution.y / screenResolution.x;
@@ -262,6 +343,19 @@ public final class CameraManager {
 	public PlanarYUVLuminanceSource buildLuminanceSource(byte[] data,
 			int width, int height) {
 		Rect rect = getFrameRectInPreview();
+		checkPreviewFormat();
+		return new PlanarYUVLuminanceSource(data, width, height, rect.left,
+				rect.top, rect.width(), rect.height());
+	}
+
+	/**
+	 * Only formats whose Y channel is planar and comes first can be decoded.
+	 */
+	void checkPreviewFormat() {
+		if (frameSource != null) {
+			// 帧来源只提供 Y 平面在前的格式
+			return;
+		}
 		int previewFormat = configMgr.getPreviewFormat();
 		String previewFormatString = configMgr.getPreviewFormatString();
 		switch (previewFormat) {
@@ -273,22 +367,39 @@ public final class CameraManager {
 			// we only care
 			// about the Y channel, so allow it.
 		case ImageFormat.NV16:
-			return new PlanarYUVLuminanceSource(data, width, height, rect.left,
-					rect.top, rect.width(), rect.height());
+			return;
 		default:
 			// The Samsung Moment incorrectly uses this variant instead of the
 			// 'sp' version.
 			// Fortunately, it too has all the Y data up front, so we can read
 			// it.
 			if ("yuv420p".equals(previewFormatString)) {
-				return new PlanarYUVLuminanceSource(data, width, height,
-						rect.left, rect.top, rect.width(), rect.height());
+				return;
 			}
 		}
 		throw new IllegalArgumentException("Unsupported picture format: "
 				+ previewFormat + '/' + previewFormatString);
 	}
 
+	/**
+	 * 录制之后收到的相机预览帧，见 {@link FrameRecorder}；为 null 时停止录制。
+	 * 须在 openDriver 之后调用，由调用方负责关闭 recorder
+	 */
+	public void setFrameRecorder(FrameRecorder recorder) {
+		previewCallback.setRecorder(recorder,
+				recorder != null ? new Rect(getFrameRectInPreview()) : null);
+	}
+
+	/**
+	 * 使用其他帧来源代替相机，如 {@link ReplayFrameSource} 回放录制的帧，用于压测完整的扫码流程。
+	 * 须在 openDriver 之前调用；为 null 时恢复使用相机
+	 */
+	public void setFrameSource(FrameSource frameSource) {
+		this.frameSource = frameSource;
+		frameRect = null;
+		frameRectOfPreview = null;
+	}
+
 	public Context getContext() {
 		return context;
 	}
@@ -300,4 +411,26 @@ public final class CameraManager {
 		return null;
 	}
 
+	/**
+	 * 把帧来源送出的帧转为 Handler 消息，与相机预览回调的消息相同
+	 */
+	private static final class HandlerFrameCallback implements FrameSource.Callback {
+
+		private final Handler handler;
+		private final int message;
+
+		HandlerFrameCallback(Handler handler, int message) {
+			this.handler = handler;
+			this.message = message;
+		}
+
+		@Override
+		public void onFrame(byte[] data, int width, int height, long timestampNanos,
+				int[] crop) {
+			// 设备上总是解码当前的扫描框
+			handler.obtainMessage(message, width, height, data).sendToTarget();
+		}
+
+	}
+
 }
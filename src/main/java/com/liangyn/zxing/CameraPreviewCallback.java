@@ -17,6 +17,7 @@
 package com.liangyn.zxing;
 
 import android.graphics.Point;
+import android.graphics.Rect;
 import android.hardware.Camera;
 import android.os.Handler;
 import android.os.Message;
@@ -29,6 +30,15 @@ public final class CameraPreviewCallback implements Camera.PreviewCallback {
 	private final boolean useOneShotPreviewCallback;
 	private Handler previewHandler;
 	private int previewMessage;
+	/**
+	 * 使用 setPreviewCallbackWithBuffer 连续接收预览帧，缓冲区由接收方归还
+	 */
+	private boolean withBuffer;
+	/**
+	 * 录制预览帧，为 null 时不录制；以及录制到帧头中的解码区域
+	 */
+	private FrameRecorder recorder;
+	private Rect recordCrop;
 
 	public CameraPreviewCallback(CameraConfigManager configManager,
 			boolean useOneShotPreviewCallback) {
@@ -37,12 +47,41 @@ public final class CameraPreviewCallback implements Camera.PreviewCallback {
 	}
 
 	void setHandler(Handler previewHandler, int previewMessage) {
+		setHandler(previewHandler, previewMessage, false);
+	}
+
+	void setHandler(Handler previewHandler, int previewMessage,
+			boolean withBuffer) {
 		this.previewHandler = previewHandler;
 		this.previewMessage = previewMessage;
+		this.withBuffer = withBuffer;
+	}
+
+	void setRecorder(FrameRecorder recorder, Rect crop) {
+		this.recorder = recorder;
+		this.recordCrop = crop;
 	}
 
 	public void onPreviewFrame(byte[] data, Camera camera) {
 		Point cameraResolution = configManager.getCameraResolution();
+		FrameRecorder frameRecorder = recorder;
+		if (frameRecorder != null) {
+			// 帧交给解码线程之前复制，之后缓冲区可能被相机复用
+			frameRecorder.record(data, cameraResolution.x, cameraResolution.y,
+					configManager.getPreviewFormat(), System.nanoTime(), recordCrop.left,
+					recordCrop.top, recordCrop.width(), recordCrop.height());
+		}
+
+		if (withBuffer) {
+			if (previewHandler != null) {
+				previewHandler.obtainMessage(previewMessage,
+						cameraResolution.x, cameraResolution.y, data)
+						.sendToTarget();
+			} else {
+				camera.addCallbackBuffer(data);
+			}
+			return;
+		}
 		
 		if (!useOneShotPreviewCallback) {
 			camera.setPreviewCallback(null);
@@ -9,6 +9,8 @@ import android.media.MediaPlayer;
 import android.media.MediaPlayer.OnCompletionListener;
 import android.os.Bundle;
 import android.os.Handler;
+import android.os.SystemClock;
+import android.util.Log;
 import android.view.SurfaceHolder;
 import android.view.SurfaceHolder.Callback;
 import android.view.SurfaceView;
@@ -18,12 +20,16 @@ import android.widget.Toast;
 import com.google.zxing.BarcodeFormat;
 import com.google.zxing.Result;
 
+import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Vector;
 
 
 public class CaptureActivity extends Activity implements Callback {
 
+    private static final String TAG = CaptureActivity.class.getSimpleName();
+
     private CaptureActivityHandler handler;
     private ViewFinderView mViewFinderView;
     private boolean hasSurface;
@@ -34,6 +40,30 @@ public class CaptureActivity extends Activity implements Callback {
     private boolean playBeep;
     private static final float BEEP_VOLUME = 0.10f;
     private boolean vibrate;
+    /**
+     * 连续扫描时默认的去重时间窗口
+     */
+    private static final int DEFAULT_DEDUP_WINDOW_MILLIS = 3000;
+    /**
+     * 连续扫描模式：识别后不退出，重复的条码按窗口过滤，新条码交给 scanResultListener
+     */
+    private boolean continuousMode;
+    private ResultDeduplicator deduplicator;
+    private ScanResultListener scanResultListener;
+    /**
+     * 连续扫描中已上报的条码内容和格式，离开时一并返回
+     */
+    private final ArrayList<String> scannedContents = new ArrayList<String>();
+    private final ArrayList<String> scannedFormats = new ArrayList<String>();
+    /**
+     * 启动追踪的输出文件，以及本次 onResume 的时间（已出结果或未追踪时为 0）
+     */
+    private String traceFile;
+    private long resumeNanos;
+    /**
+     * 录制预览帧，见 {@link Intents.Scan#RECORD_FILE}
+     */
+    private FrameRecorder frameRecorder;
 
     @Override
     public void onCreate(Bundle savedInstanceState) {
@@ -45,11 +75,24 @@ public class CaptureActivity extends Activity implements Callback {
         mViewFinderView = (ViewFinderView) findViewById(R.id.viewfinder);
         hasSurface = false;
         scanTimeoutTimer = new ScanTimoutTimer(this);
+
+        Intent intent = getIntent();
+        continuousMode = intent.getBooleanExtra(Intents.Scan.CONTINUOUS_MODE, false);
+        if (continuousMode) {
+            deduplicator = new ResultDeduplicator(
+                    intent.getIntExtra(Intents.Scan.DEDUP_WINDOW_MILLIS, DEFAULT_DEDUP_WINDOW_MILLIS),
+                    intent.getIntExtra(Intents.Scan.DEDUP_WINDOW_SIZE, 0));
+        }
     }
 
     @Override
     protected void onResume() {
         super.onResume();
+        traceFile = getIntent().getStringExtra(Intents.Scan.TRACE_FILE);
+        if (traceFile != null) {
+            ScanTrace.start();
+        }
+        resumeNanos = ScanTrace.begin();
         SurfaceView surfaceView = (SurfaceView) findViewById(R.id.svPreviewView);
         SurfaceHolder surfaceHolder = surfaceView.getHolder();
         if (hasSurface) {
@@ -67,6 +110,7 @@ public class CaptureActivity extends Activity implements Callback {
         }
         initBeepSound();
         vibrate = true;
+        ScanTrace.end("CaptureActivity.onResume", resumeNanos);
     }
 
     @Override
@@ -77,6 +121,25 @@ public class CaptureActivity extends Activity implements Callback {
             handler = null;
         }
         CameraManager.get().closeDriver();
+        if (frameRecorder != null) {
+            CameraManager.get().setFrameRecorder(null);
+            try {
+                frameRecorder.close();
+                Log.d(TAG, "Recorded " + frameRecorder.getFramesRecorded() + " frames, dropped "
+                        + frameRecorder.getFramesDropped());
+            } catch (IOException e) {
+                Log.w(TAG, "Could not finish frame recording", e);
+            }
+            frameRecorder = null;
+        }
+        ScanTrace trace = ScanTrace.stop();
+        if (traceFile != null && trace != null) {
+            try {
+                trace.writeTo(traceFile);
+            } catch (IOException e) {
+                Log.w(TAG, "Could not write scan trace to " + traceFile, e);
+            }
+        }
     }
 
     @Override
@@ -90,9 +153,13 @@ public class CaptureActivity extends Activity implements Callback {
      * Handler scan result
      *
      * @param result
-     * @param barcode
+     * @param thumbnail 扫描框区域的灰度数据，调用 getBitmap() 时才生成位图，可能为 null
      */
-    public void handleDecode(Result result, Bitmap barcode) {
+    public void handleDecode(Result result, BarcodeThumbnail thumbnail) {
+        if (continuousMode) {
+            handleContinuousDecode(new Result[]{result}, thumbnail);
+            return;
+        }
         scanTimeoutTimer.onActivity();
         playBeepSoundAndVibrate();
         String content = result.getText();
@@ -108,14 +175,124 @@ public class CaptureActivity extends Activity implements Callback {
         CaptureActivity.this.finish();
     }
 
+    /**
+     * Handler scan result
+     *
+     * @deprecated 识别结果不再附带位图，由 {@link CaptureActivityHandler} 调用的是
+     * {@link #handleDecode(Result, BarcodeThumbnail)}，子类应改为重写该方法；
+     * 本方法只转交给它，barcode 不再使用
+     */
+    @Deprecated
+    public void handleDecode(Result result, Bitmap barcode) {
+        handleDecode(result, (BarcodeThumbnail) null);
+    }
+
+    /**
+     * Handler scan results in batch mode ({@link Intents.Scan#BATCH_MODE})
+     * 说明：识别到的所有不重复条码逐个多帧一致后一次性返回，
+     * 可能来自相邻的几帧，子类可重写以自行处理
+     *
+     * @param results   按达成一致的先后排列，至少一个
+     * @param thumbnail 扫描框区域的灰度数据，调用 getBitmap() 时才生成位图，可能为 null
+     */
+    public void handleDecodeBatch(Result[] results, BarcodeThumbnail thumbnail) {
+        if (continuousMode) {
+            handleContinuousDecode(results, thumbnail);
+            return;
+        }
+        scanTimeoutTimer.onActivity();
+        playBeepSoundAndVibrate();
+        String[] contents = new String[results.length];
+        String[] formats = new String[results.length];
+        for (int i = 0; i < results.length; i++) {
+            contents[i] = results[i].getText();
+            formats[i] = results[i].getBarcodeFormat().toString();
+        }
+        Intent resultIntent = new Intent();
+        Bundle bundle = new Bundle();
+        bundle.putString("result", contents[0]);
+        bundle.putStringArray(Intents.Scan.RESULTS, contents);
+        bundle.putStringArray(Intents.Scan.RESULT_FORMATS, formats);
+        resultIntent.putExtras(bundle);
+        this.setResult(RESULT_OK, resultIntent);
+        CaptureActivity.this.finish();
+    }
+
+    /**
+     * 连续扫描：上报去重后的新条码，相机和解码线程保持运行，直接开始识别下一个
+     */
+    private void handleContinuousDecode(Result[] results, BarcodeThumbnail thumbnail) {
+        long now = SystemClock.uptimeMillis();
+        boolean found = false;
+        for (Result result : results) {
+            if ("".equals(result.getText()) || !deduplicator.accept(result, now)) {
+                continue;
+            }
+            found = true;
+            scannedContents.add(result.getText());
+            scannedFormats.add(result.getBarcodeFormat().toString());
+            if (scanResultListener != null) {
+                scanResultListener.onScanResult(result, thumbnail);
+            }
+        }
+        if (found) {
+            scanTimeoutTimer.onActivity();
+            playBeepSoundAndVibrate();
+            // 离开时返回本次扫描到的所有条码
+            Intent resultIntent = new Intent();
+            Bundle bundle = new Bundle();
+            bundle.putString("result", scannedContents.get(scannedContents.size() - 1));
+            bundle.putStringArray(Intents.Scan.RESULTS,
+                    scannedContents.toArray(new String[scannedContents.size()]));
+            bundle.putStringArray(Intents.Scan.RESULT_FORMATS,
+                    scannedFormats.toArray(new String[scannedFormats.size()]));
+            resultIntent.putExtras(bundle);
+            this.setResult(RESULT_OK, resultIntent);
+        }
+        if (handler != null) {
+            handler.sendEmptyMessage(R.id.scan_restart_preview);
+        }
+    }
+
+    /**
+     * 设置连续扫描模式下接收结果的回调，见 {@link Intents.Scan#CONTINUOUS_MODE}
+     */
+    public void setScanResultListener(ScanResultListener listener) {
+        scanResultListener = listener;
+    }
+
     private void initCamera(SurfaceHolder surfaceHolder) {
+        long begin = ScanTrace.begin();
         try {
             CameraManager.get().openDriver(surfaceHolder);
         } catch (IOException | RuntimeException ioe) {
             return;
+        } finally {
+            ScanTrace.end("CameraManager.openDriver", begin);
+        }
+        String recordFile = getIntent().getStringExtra(Intents.Scan.RECORD_FILE);
+        if (recordFile != null && frameRecorder == null) {
+            try {
+                frameRecorder = new FrameRecorder(new File(recordFile));
+                CameraManager.get().setFrameRecorder(frameRecorder);
+            } catch (IOException e) {
+                Log.w(TAG, "Could not record frames to " + recordFile, e);
+            }
         }
         if (handler == null) {
-            handler = new CaptureActivityHandler(this, decodeFormats, characterSet);
+            int decodeThreads = getIntent().getIntExtra(Intents.Scan.DECODE_THREADS,
+                    DecodeWorkerPool.defaultWorkerCount());
+            boolean pipelined = getIntent().getBooleanExtra(Intents.Scan.PIPELINED_PREVIEW, true);
+            boolean batch = getIntent().getBooleanExtra(Intents.Scan.BATCH_MODE, false);
+            int escalateAfter = getIntent().getIntExtra(Intents.Scan.ESCALATE_AFTER, 0);
+            handler = new CaptureActivityHandler(this, decodeFormats, characterSet,
+                    DecodeFormatManager.parseDecodeProfile(getIntent()),
+                    escalateAfter > 0 ? DecodeEscalation.standard(escalateAfter) : null,
+                    decodeThreads, pipelined, batch);
+            handler.setConsensus(ResultConsensus.parse(
+                    getIntent().getStringExtra(Intents.Scan.CONSENSUS)));
+            handler.setMetricsLogInterval(
+                    getIntent().getIntExtra(Intents.Scan.METRICS_LOG_INTERVAL, 0));
         }
     }
 
@@ -190,6 +367,9 @@ public class CaptureActivity extends Activity implements Callback {
      * 条形码扫描后播放声音和震动
      */
     private void playBeepSoundAndVibrate() {
+        // 从 onResume 到第一次提示音，即用户感受到的扫码耗时
+        ScanTrace.end("timeToFirstScan", resumeNanos);
+        resumeNanos = 0L;
         if (playBeep && mMediaPlayer != null) {
             mMediaPlayer.start();
         }
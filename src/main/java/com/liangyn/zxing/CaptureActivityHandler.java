@@ -2,11 +2,10 @@ package com.liangyn.zxing;
 
 import android.app.Activity;
 import android.content.Intent;
-import android.graphics.Bitmap;
 import android.net.Uri;
-import android.os.Bundle;
 import android.os.Handler;
 import android.os.Message;
+import android.os.SystemClock;
 import android.util.Log;
 
 import com.google.zxing.BarcodeFormat;
@@ -20,15 +19,77 @@ public final class CaptureActivityHandler extends Handler {
     private static final String TAG = CaptureActivityHandler.class.getName();
 
     private final CaptureActivity activity;
-    private final DecodeThread decodeThread;
+    private final DecodeWorkerPool decodeWorkers;
     private State state;
+    /**
+     * 是否已向相机请求了一帧、尚未收到；流水线模式下表示已开始连续采集
+     */
+    private boolean frameRequested;
+    /**
+     * 流水线模式：相机持续向预分配的缓冲区写入预览帧，解码的同时采集下一帧
+     */
+    private final boolean pipelined;
+    /**
+     * 流水线模式下等待空闲解码线程的最新一帧，更新的帧到达时旧帧直接归还相机
+     */
+    private byte[] pendingFrame;
+    private int pendingWidth;
+    private int pendingHeight;
+    private long pendingNanos;
+    /**
+     * 是否正在自动对焦，以及上一次对焦完成的时间
+     */
+    private boolean focusing;
+    private long lastFocusMillis;
+    private long focusBeginNanos;
+    /**
+     * 多帧一致后才把结果交给 CaptureActivity
+     */
+    private ResultConsensus consensus = new ResultConsensus();
+    /**
+     * 是否识别每帧中的所有条码；批量模式下整批一致前最近一次识别成功的帧的缩略图
+     */
+    private final boolean multiple;
+    private BarcodeThumbnail batchThumbnail;
+    /**
+     * 上一帧预览数据到达的时间，以及定期输出统计的间隔（0 为不输出）
+     */
+    private long lastFrameNanos;
+    private long metricsLogMillis;
+    /**
+     * 逐级加码的策略，未开启时为 null
+     */
+    private final DecodeEscalation escalation;
 
     public CaptureActivityHandler(CaptureActivity activity,
                                   Vector<BarcodeFormat> decodeFormats, String characterSet) {
+        this(activity, decodeFormats, characterSet, DecodeProfile.BALANCED, null,
+                DecodeWorkerPool.defaultWorkerCount(), true, false);
+    }
+
+    /**
+     * @param profile       解码提示等配置，见 {@link Intents.Scan#PROFILE}
+     * @param escalation    逐级加码的策略，不为 null 时代替 profile 决定每帧的解码配置
+     * @param decodeThreads 并行解码的线程数
+     * @param pipelined     是否使用 setPreviewCallbackWithBuffer 连续采集预览帧
+     * @param multiple      是否识别每帧中的所有条码，结果交给 {@link CaptureActivity#handleDecodeBatch}
+     */
+    public CaptureActivityHandler(CaptureActivity activity,
+                                  Vector<BarcodeFormat> decodeFormats, String characterSet,
+                                  DecodeProfile profile, DecodeEscalation escalation,
+                                  int decodeThreads, boolean pipelined, boolean multiple) {
         this.activity = activity;
-        decodeThread = new DecodeThread(activity, decodeFormats, characterSet,
-                new ViewFinderResultPointCallback(activity.getViewfinderView()));
-        decodeThread.start();
+        this.pipelined = pipelined;
+        this.escalation = escalation;
+        this.multiple = multiple;
+        // 解码线程会读取预览中的扫描框，先在主线程中计算好
+        CameraManager.get().getFrameRectInPreview();
+        long begin = ScanTrace.begin();
+        decodeWorkers = new DecodeWorkerPool(activity, decodeThreads, decodeFormats,
+                characterSet, profile, escalation,
+                new ViewFinderResultPointCallback(activity.getViewfinderView()), multiple);
+        decodeWorkers.start();
+        ScanTrace.end("DecodeWorkerPool.create", begin);
         state = State.SUCCESS;
         // 预览、扫描解码
         CameraManager.get().startPreview();
@@ -37,28 +98,94 @@ public final class CaptureActivityHandler extends Handler {
 
     @Override
     public void handleMessage(Message message) {
-        if (message.what == R.id.scan_auto_focus) {// 当一次对焦结束后，指定间隔时间后继续下一次的对焦
-            if (state == State.PREVIEW) {
-                CameraManager.get().requestAutoFocus(this, R.id.scan_auto_focus);
-            }
+        if (message.what == R.id.scan_auto_focus) {// 对焦结束，之后只在预览帧模糊时才重新对焦
+            focusing = false;
+            lastFocusMillis = SystemClock.uptimeMillis();
+            ScanTrace.end("autoFocus", focusBeginNanos);
 
         } else if (message.what == R.id.scan_restart_preview) {
             restartPreviewAndDecode();
 
-        } else if (message.what == R.id.scan_decode_succeed) {
-            state = State.SUCCESS;
-            Bundle bundle = message.getData();
-
-            /***********************************************************************/
-            Bitmap barcode = bundle == null ? null : (Bitmap) bundle
-                    .getParcelable(DecodeThread.BARCODE_BITMAP);
+        } else if (message.what == R.id.scan_preview_frame) {
+            if (!pipelined) {
+                frameRequested = false;
+            }
+            DecodeMetrics metrics = decodeWorkers.getMetrics();
+            long now = System.nanoTime();
+            metrics.onFrameReceived();
+            if (lastFrameNanos != 0L) {
+                metrics.recordStage(DecodeMetrics.STAGE_FRAME_INTERVAL, now - lastFrameNanos);
+            } else {
+                ScanTrace.instant("firstPreviewFrame");
+            }
+            lastFrameNanos = now;
+            byte[] data = (byte[]) message.obj;
+            if (state != State.PREVIEW) {
+                releaseFrame(data);
+            } else if (decodeWorkers.dispatch(data, message.arg1, message.arg2, now)) {
+                requestPreviewFrame();
+            } else {
+                // 解码线程都在忙，只保留最新的一帧，过时的帧直接丢弃
+                if (pendingFrame != null) {
+                    metrics.onFrameDropped();
+                }
+                releaseFrame(pendingFrame);
+                pendingFrame = data;
+                pendingWidth = message.arg1;
+                pendingHeight = message.arg2;
+                pendingNanos = now;
+            }
 
-            activity.handleDecode((Result) message.obj, barcode);
+        } else if (message.what == R.id.scan_decode_succeed) {
+            long sentNanos = message.getData().getLong(DecodeHandler.SENT_NANOS);
+            if (sentNanos != 0L) {
+                decodeWorkers.getMetrics().recordStage(DecodeMetrics.STAGE_UI_HANDOFF,
+                        System.nanoTime() - sentNanos);
+            }
+            releaseFrame(decodeWorkers.onWorkerIdle(message.arg1));
+            if (state != State.PREVIEW) {
+                // 其他解码线程已经返回了结果，只采用第一个
+                return;
+            }
+            // 缩略图只在调用 getBitmap() 时才生成
+            BarcodeThumbnail thumbnail = BarcodeThumbnail.fromBundle(message.getData());
+            Result[] agreed;
+            if (multiple) {
+                batchThumbnail = thumbnail;
+                agreed = consensus.onBatchFrame((Result[]) message.obj);
+            } else {
+                agreed = consensus.onFrame(new Result[]{(Result) message.obj});
+            }
+            if (agreed == null) {
+                // 还没有足够的帧识别出相同的结果，继续识别下一帧
+                requestPreviewFrame();
+                return;
+            }
+            deliver(agreed, thumbnail);
 
-        } else if (message.what == R.id.scan_decode_failed) {// We're decoding as fast as possible, so when one decode fails,
+        } else if (message.what == R.id.scan_decode_failed
+                || message.what == R.id.scan_decode_blurry) {// We're decoding as fast as possible, so when one decode fails,
             // start another.
-            state = State.PREVIEW;
-            CameraManager.get().requestPreviewFrame(decodeThread.getHandler(), R.id.scan_decode);
+            releaseFrame(decodeWorkers.onWorkerIdle(message.arg1));
+            if (state == State.PREVIEW) {
+                // 批量模式下其余条码可能在这一帧过后再也凑不够帧数，已一致的条码随之返回
+                Result[] agreed = multiple ? consensus.onBatchFrame(null) : consensus.onFrame(null);
+                if (agreed != null) {
+                    deliver(agreed, batchThumbnail);
+                    return;
+                }
+            }
+            requestPreviewFrame();
+            if (message.what == R.id.scan_decode_blurry) {
+                requestAutoFocus();
+            }
+
+        } else if (message.what == R.id.scan_metrics_log) {
+            Log.d(TAG, decodeWorkers.getMetrics().snapshot().toString());
+            if (escalation != null) {
+                Log.d(TAG, "Escalation: " + escalation);
+            }
+            sendEmptyMessageDelayed(R.id.scan_metrics_log, metricsLogMillis);
 
         } else if (message.what == R.id.scan_return_result) {
             Log.d(TAG, "Got return scan result message");
@@ -74,32 +201,116 @@ public final class CaptureActivityHandler extends Handler {
         }
     }
 
+    /**
+     * 设置各格式需要多少帧一致，默认一维码 3 帧中 2 帧一致，其余格式单帧即采用
+     */
+    void setConsensus(ResultConsensus consensus) {
+        this.consensus = consensus;
+    }
+
+    /**
+     * 性能统计，可随时调用 {@link DecodeMetrics#snapshot()} 查看
+     */
+    public DecodeMetrics getMetrics() {
+        return decodeWorkers.getMetrics();
+    }
+
+    /**
+     * 每隔 seconds 秒把性能统计输出到日志，0 为不输出
+     */
+    void setMetricsLogInterval(int seconds) {
+        removeMessages(R.id.scan_metrics_log);
+        metricsLogMillis = seconds * 1000L;
+        if (metricsLogMillis > 0) {
+            sendEmptyMessageDelayed(R.id.scan_metrics_log, metricsLogMillis);
+        }
+    }
+
     public void quitSynchronously() {
         state = State.DONE;
         CameraManager.get().stopPreview();
-        Message quit = Message
-                .obtain(decodeThread.getHandler(), R.id.scan_quit);
-        quit.sendToTarget();
-        try {
-            decodeThread.join();
-        } catch (InterruptedException e) {
+        decodeWorkers.quitSynchronously();
+        FramePreFilter preFilter = decodeWorkers.getPreFilter();
+        Log.d(TAG, "Pre-filter passed " + preFilter.getPassedFrames()
+                + " frames, rejected " + preFilter.getRejectedFrames()
+                + ", blurry " + preFilter.getBlurryFrames());
+        if (metricsLogMillis > 0) {
+            Log.d(TAG, decodeWorkers.getMetrics().snapshot().toString());
         }
+        frameRequested = false;
+        pendingFrame = null;
 
         // 退出后清空队列中的冗余消息
+        removeMessages(R.id.scan_preview_frame);
         removeMessages(R.id.scan_decode_succeed);
         removeMessages(R.id.scan_decode_failed);
+        removeMessages(R.id.scan_decode_blurry);
+        removeMessages(R.id.scan_metrics_log);
+    }
+
+    private void deliver(Result[] agreed, BarcodeThumbnail thumbnail) {
+        state = State.SUCCESS;
+        releaseFrame(pendingFrame);
+        pendingFrame = null;
+        batchThumbnail = null;
+        if (multiple) {
+            activity.handleDecodeBatch(agreed, thumbnail);
+        } else {
+            activity.handleDecode(agreed[0], thumbnail);
+        }
     }
 
     private void restartPreviewAndDecode() {
         if (state == State.SUCCESS) {
             state = State.PREVIEW;
-            CameraManager.get().requestPreviewFrame(decodeThread.getHandler(),
-                    R.id.scan_decode);
-            CameraManager.get().requestAutoFocus(this, R.id.scan_auto_focus);
+            requestPreviewFrame();
+            requestAutoFocus();
             activity.drawViewfinder();
         }
     }
 
+    /**
+     * 有空闲的解码线程时准备下一帧，收到后由 scan_preview_frame 分发
+     * 流水线模式下优先分发已经采集好的最新帧，否则只在第一次时启动连续采集
+     */
+    private void requestPreviewFrame() {
+        if (state != State.PREVIEW || !decodeWorkers.hasIdleWorker()) {
+            return;
+        }
+        if (pipelined) {
+            if (pendingFrame != null) {
+                decodeWorkers.dispatch(pendingFrame, pendingWidth, pendingHeight, pendingNanos);
+                pendingFrame = null;
+            } else if (!frameRequested) {
+                frameRequested = true;
+                // 解码线程各持有一帧，另留两个缓冲区给相机写入和等待中的最新帧
+                CameraManager.get().startPreviewFrames(this, R.id.scan_preview_frame,
+                        decodeWorkers.size() + 2);
+            }
+        } else if (!frameRequested) {
+            frameRequested = true;
+            CameraManager.get().requestPreviewFrame(this, R.id.scan_preview_frame);
+        }
+    }
+
+    /**
+     * 请求自动对焦，正在对焦或距上次对焦不足 AUTOFOCUS_PER_MILLIS 时忽略
+     */
+    private void requestAutoFocus() {
+        if (state == State.PREVIEW && !focusing && (lastFocusMillis == 0L
+                || SystemClock.uptimeMillis() - lastFocusMillis >= CameraAutoFocusCallback.AUTOFOCUS_PER_MILLIS)) {
+            focusing = true;
+            focusBeginNanos = ScanTrace.begin();
+            CameraManager.get().requestAutoFocus(this, R.id.scan_auto_focus);
+        }
+    }
+
+    private void releaseFrame(byte[] data) {
+        if (pipelined && data != null) {
+            CameraManager.get().releasePreviewFrame(data);
+        }
+    }
+
     private enum State {
         PREVIEW, SUCCESS, DONE
     }
@@ -0,0 +1,850 @@
+package com.liangyn.zxing;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.ReaderException;
+import com.google.zxing.Result;
+import com.google.zxing.ResultPoint;
+import com.google.zxing.ResultPointCallback;
+import com.google.zxing.multi.GenericMultipleBarcodeReader;
+import com.google.zxing.multi.MultipleBarcodeReader;
+import com.google.zxing.multi.qrcode.QRCodeMultiReader;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Hashtable;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Vector;
+
+/**
+ * 不依赖 Android 的解码引擎：输入一帧 YUV 数据（Y 平面在前，如 NV21），输出识别结果
+ * 说明：依次完成快速筛选、扫描框区域的旋转裁剪、二值化和按格式调度的解码，
+ * 缓冲区和解码器在帧之间复用。DecodeHandler 只负责把预览帧交给引擎并回传结果，
+ * 服务端等普通 JVM 环境也可以直接使用。
+ * 注：非线程安全，每个线程使用自己的实例；多个实例可以共享格式调度和筛选统计。
+ */
+public final class DecodeEngine {
+
+    /**
+     * 识别成功
+     */
+    public static final int STATUS_DECODED = 0;
+
+    /**
+     * 解码了但没有找到条码
+     */
+    public static final int STATUS_NOT_FOUND = 1;
+
+    /**
+     * 快速筛选判定没有类似条码的内容，未解码
+     */
+    public static final int STATUS_NO_CONTENT = 2;
+
+    /**
+     * 快速筛选判定画面模糊，未解码，应重新对焦
+     */
+    public static final int STATUS_BLURRY = 3;
+
+    /**
+     * 默认解码线程数的上限，每个在途的预览帧都会占用一块完整的帧内存
+     */
+    private static final int MAX_DEFAULT_THREADS = 4;
+
+    /**
+     * 每个格式分组一个解码器，由 scheduler 决定每帧尝试哪些分组
+     */
+    private final MultiFormatReader[] multiFormatReaders;
+    private final List<Hashtable<DecodeHintType, Object>> hints;
+    private final List<Vector<BarcodeFormat>> groups;
+    private final String characterSet;
+    private final ResultPointCallback pointCallback;
+    /**
+     * 一维码分组的序号，没有时为 -1
+     */
+    private final int oneDGroup;
+    /**
+     * 逐级加码的策略，以及每级一套与分组一一对应的解码器（被该级的格式限制掉的分组为 null）
+     */
+    private DecodeEscalation escalation;
+    private MultiFormatReader[][] levelReaders;
+    /**
+     * 多码模式的解码器，与 multiFormatReaders 按分组一一对应，第一次使用时创建
+     */
+    private MultipleBarcodeReader[] multipleReaders;
+    private final DecodeFormatScheduler scheduler;
+    private final FramePreFilter preFilter;
+    private final DecodeMetrics metrics;
+    private final DecodeProfile profile;
+    private final int[] plan;
+
+    /**
+     * 缩小后的短边至少为多少像素才尝试该层，太小的条码缩小后无法识别
+     */
+    private static final int MIN_PYRAMID_SIZE = 160;
+
+    /**
+     * 最多缩小 2 的几次方倍
+     */
+    private static final int MAX_PYRAMID_LEVEL = 2;
+
+    private final FrameBufferPool bufferPool = new FrameBufferPool();
+    /**
+     * 每层一个二值化工作区，0 为原图
+     */
+    private final ReusableHybridBinarizer.Workspace[] binarizerWorkspaces =
+            new ReusableHybridBinarizer.Workspace[MAX_PYRAMID_LEVEL + 1];
+    private final byte[][] pyramid = new byte[MAX_PYRAMID_LEVEL + 1][];
+    /**
+     * 从 ByteBuffer 中的帧读出的解码区域（未旋转），以及它在帧中的位置（左、上、宽、高）
+     */
+    private byte[] bufferCrop;
+    /**
+     * 反色后的解码区域，见 {@link DecodeProfile#isTryInverted()}
+     */
+    private byte[] invertedData;
+    /**
+     * 旋转 90 度后的解码区域，见 {@link DecodeProfile#isTryRotated()}
+     */
+    private byte[] rotatedData;
+    private final int[] unrotatedRect = new int[4];
+    private int pyramidLevel = MAX_PYRAMID_LEVEL;
+    /**
+     * 上一帧在哪一层识别成功，下一帧从这一层开始，小条码不必每帧都先尝试缩小的图像；
+     * 没有识别到时恢复为 pyramidLevel
+     */
+    private int startLevel = MAX_PYRAMID_LEVEL;
+    private int lastStatus;
+    private PlanarYUVLuminanceSource lastSource;
+    /**
+     * 跟踪上一帧找到的条码，只解码其周围的区域
+     */
+    private final RoiTracker roiTracker = new RoiTracker();
+    private boolean roiTracking = true;
+    /**
+     * 逐张解码互不相关的图片，而非连续的预览帧，见 {@link #setStillImageMode}
+     */
+    private boolean stillImages;
+    /**
+     * 静态图片模式下上一张的解码区域尺寸，尺寸变化时释放缓冲池
+     */
+    private int stillWidth;
+    private int stillHeight;
+    /**
+     * 本帧实际解码区域相对于调用方给出的完整区域的偏移，结果点据此换算
+     */
+    private int offsetX;
+    private int offsetY;
+    /**
+     * 当前所解码的层的缩小倍数，结果点据此换算
+     */
+    private int pointScale = 1;
+    /**
+     * 正在解码旋转 90 度的图像时为原图的高度，结果点据此转回原图坐标；否则为 0
+     */
+    private int rotatedHeight;
+
+    /**
+     * @param decodeFormats       要识别的格式，为空时识别一维码、QR 码和 Data Matrix
+     * @param characterSet        见 {@link DecodeHintType#CHARACTER_SET}，可为 null
+     * @param resultPointCallback 可能的结果点回调，可为 null
+     */
+    public DecodeEngine(Collection<BarcodeFormat> decodeFormats, String characterSet,
+                        ResultPointCallback resultPointCallback) {
+        this(decodeFormats, characterSet, resultPointCallback, DecodeProfile.BALANCED);
+    }
+
+    /**
+     * @param profile 解码提示等配置，decodeFormats 为空时使用其格式
+     */
+    public DecodeEngine(Collection<BarcodeFormat> decodeFormats, String characterSet,
+                        ResultPointCallback resultPointCallback, DecodeProfile profile) {
+        this(decodeFormats, characterSet, resultPointCallback, null, new FramePreFilter(), null,
+                profile);
+    }
+
+    /**
+     * @param scheduler 多个引擎共享的格式调度，为 null 时单独创建
+     * @param preFilter 多个引擎共享的快速筛选
+     * @param metrics   多个引擎共享的性能统计，为 null 时单独创建
+     */
+    DecodeEngine(Collection<BarcodeFormat> decodeFormats, String characterSet,
+                 ResultPointCallback resultPointCallback, DecodeFormatScheduler scheduler,
+                 FramePreFilter preFilter, DecodeMetrics metrics, DecodeProfile profile) {
+        decodeFormats = resolveFormats(decodeFormats, profile);
+
+        groups = DecodeFormats.splitFormatGroups(decodeFormats);
+        this.characterSet = characterSet;
+        // 候选点先换算到完整区域的坐标，交给 roiTracker 后再转给调用方
+        pointCallback = new TrackingPointCallback(resultPointCallback);
+        int oneD = -1;
+        for (int i = 0; i < groups.size(); i++) {
+            if (DecodeFormats.ONE_D_FORMATS.contains(groups.get(i).get(0))) {
+                oneD = i;
+            }
+        }
+        oneDGroup = oneD;
+        hints = new ArrayList<Hashtable<DecodeHintType, Object>>(groups.size());
+        multiFormatReaders = createReaders(profile, false, hints);
+        this.scheduler = scheduler != null ? scheduler
+                : new DecodeFormatScheduler(multiFormatReaders.length);
+        this.preFilter = preFilter;
+        this.metrics = metrics != null ? metrics
+                : new DecodeMetrics(DecodeFormats.formatGroupNames(groups));
+        this.profile = profile;
+        plan = new int[multiFormatReaders.length];
+        for (int i = 0; i < binarizerWorkspaces.length; i++) {
+            binarizerWorkspaces[i] = new ReusableHybridBinarizer.Workspace();
+        }
+        setMaxDownsample(profile.getMaxDownsample());
+    }
+
+    /**
+     * 按配置为每个格式分组创建解码器
+     *
+     * @param restrict 是否只识别配置的格式；各分组都不含配置的格式时不限制
+     * @param hintsOut 接收各分组的参数，可为 null
+     * @return 与分组一一对应，被限制掉的分组为 null
+     */
+    private MultiFormatReader[] createReaders(DecodeProfile profile, boolean restrict,
+                                              List<Hashtable<DecodeHintType, Object>> hintsOut) {
+        Collection<BarcodeFormat> allowed = restrict ? profile.getFormats() : null;
+        if (allowed != null) {
+            boolean any = false;
+            for (Vector<BarcodeFormat> group : groups) {
+                for (BarcodeFormat format : group) {
+                    any |= allowed.contains(format);
+                }
+            }
+            if (!any) {
+                allowed = null;
+            }
+        }
+        MultiFormatReader[] readers = new MultiFormatReader[groups.size()];
+        for (int i = 0; i < readers.length; i++) {
+            Vector<BarcodeFormat> formats = groups.get(i);
+            if (allowed != null) {
+                formats = new Vector<BarcodeFormat>(formats);
+                formats.retainAll(allowed);
+                if (formats.isEmpty()) {
+                    continue;
+                }
+            }
+            Hashtable<DecodeHintType, Object> groupHints = new Hashtable<DecodeHintType, Object>(3);
+            groupHints.put(DecodeHintType.POSSIBLE_FORMATS, formats);
+
+            if (characterSet != null) {
+                groupHints.put(DecodeHintType.CHARACTER_SET, characterSet);
+            }
+            if (profile.isTryHarder()) {
+                groupHints.put(DecodeHintType.TRY_HARDER, Boolean.TRUE);
+            }
+            if (profile.isPureBarcode()) {
+                groupHints.put(DecodeHintType.PURE_BARCODE, Boolean.TRUE);
+            }
+            if (profile.isAssumeGs1()) {
+                groupHints.put(DecodeHintType.ASSUME_GS1, Boolean.TRUE);
+            }
+            groupHints.put(DecodeHintType.NEED_RESULT_POINT_CALLBACK, pointCallback);
+            if (hintsOut != null) {
+                hintsOut.add(groupHints);
+            }
+            readers[i] = new MultiFormatReader();
+            readers[i].setHints(groupHints);
+        }
+        return readers;
+    }
+
+    /**
+     * 并行解码预览帧时默认的线程数（每个线程一个引擎），留出一个核心给 UI 和相机回调
+     */
+    static int defaultThreadCount() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        return Math.max(1, Math.min(cores - 1, MAX_DEFAULT_THREADS));
+    }
+
+    /**
+     * 调用方指定的格式优先，其次是配置的格式，都没有时使用默认格式
+     */
+    static Collection<BarcodeFormat> resolveFormats(Collection<BarcodeFormat> decodeFormats,
+                                                    DecodeProfile profile) {
+        if (decodeFormats != null && !decodeFormats.isEmpty()) {
+            return decodeFormats;
+        }
+        if (profile.getFormats() != null) {
+            return profile.getFormats();
+        }
+        return DecodeFormats.defaultDecodeFormats();
+    }
+
+    /**
+     * 解码一帧中的一个矩形区域
+     *
+     * @param yuvData    未旋转的帧数据，Y 平面在前
+     * @param dataWidth  帧宽度
+     * @param dataHeight 帧高度
+     * @param rotation   显示时顺时针旋转的角度，0/90/180/270
+     * @param left       解码区域在旋转后图像中的左边界
+     * @param top        解码区域在旋转后图像中的上边界
+     * @param width      解码区域宽度
+     * @param height     解码区域高度
+     * @return 识别结果，没有识别到时返回 null，原因见 {@link #getLastStatus()}；
+     * 结果点相对于解码区域的左上角
+     * @see #decodeMultiple
+     */
+    public Result decode(byte[] yuvData, int dataWidth, int dataHeight, int rotation,
+                         int left, int top, int width, int height) {
+        long frameStart = System.nanoTime();
+        // 逐级加码时由当前级别的配置代替构造时的配置
+        int tier = escalation != null ? escalation.getLevel() : -1;
+        DecodeProfile active = tier >= 0 ? escalation.getProfile(tier) : profile;
+        MultiFormatReader[] readers = tier >= 0 ? levelReaders[tier] : multiFormatReaders;
+        int maxLevel = tier >= 0
+                ? Integer.numberOfTrailingZeros(active.getMaxDownsample()) : pyramidLevel;
+        // 跟踪到条码时只解码其周围的区域，没有识别到时下一帧恢复完整区域
+        int decodeWidth = width;
+        int decodeHeight = height;
+        offsetX = 0;
+        offsetY = 0;
+        if (roiTracking && roiTracker.isTracking(width, height)) {
+            offsetX = roiTracker.getLeft();
+            offsetY = roiTracker.getTop();
+            decodeWidth = roiTracker.getWidth();
+            decodeHeight = roiTracker.getHeight();
+        }
+        roiTracker.beginFrame();
+        BinaryBitmap bitmap = prepare(yuvData, dataWidth, dataHeight, rotation,
+                left + offsetX, top + offsetY, decodeWidth, decodeHeight);
+        if (bitmap == null) {
+            roiTracker.endFrame(null);
+            rejectFrame(active);
+            return null;
+        }
+
+        // 大尺寸的解码区域先逐层缩小 2 倍，从最小的一层开始解码，失败再换大一层，最后才解码原图
+        long start = System.nanoTime();
+        int levels = 0;
+        int levelWidth = decodeWidth;
+        int levelHeight = decodeHeight;
+        pyramid[0] = lastSource.getMatrix();
+        // 上一帧在原图识别成功时 startLevel 为 0，配置了至少缩小几倍时仍要先缩小到该层
+        int minLevel = Integer.numberOfTrailingZeros(active.getMinDownsample());
+        int targetLevel = Math.max(Math.min(startLevel, maxLevel), minLevel);
+        while (levels < targetLevel
+                && Math.min(levelWidth, levelHeight) >> 1 >= MIN_PYRAMID_SIZE) {
+            byte[] downsampled = bufferPool.obtain((levelWidth >> 1) * (levelHeight >> 1));
+            LuminanceDownsampler.downsample2x(pyramid[levels], levelWidth, levelHeight,
+                    downsampled);
+            levelWidth >>= 1;
+            levelHeight >>= 1;
+            pyramid[++levels] = downsampled;
+        }
+        if (levels > 0) {
+            metrics.recordStage(DecodeMetrics.STAGE_DOWNSAMPLE, System.nanoTime() - start);
+        }
+
+        Result rawResult = null;
+        int count = stillImages ? planAllGroups() : scheduler.plan(plan);
+        // 配置了至少缩小几倍时不解码原图，解码区域太小无法缩小时除外
+        int lowest = Math.min(minLevel, levels);
+        for (int level = levels; level >= lowest && rawResult == null; level--) {
+            if (level > 0) {
+                levelWidth = decodeWidth >> level;
+                levelHeight = decodeHeight >> level;
+                pointScale = 1 << level;
+                rawResult = decodeGroups(readers, new BinaryBitmap(new ReusableHybridBinarizer(
+                        new PlanarYUVLuminanceSource(pyramid[level], levelWidth, levelHeight,
+                                0, 0, levelWidth, levelHeight),
+                        binarizerWorkspaces[level])), count, binarizerWorkspaces[level]);
+            } else {
+                pointScale = 1;
+                rawResult = decodeGroups(readers, bitmap, count, binarizerWorkspaces[0]);
+            }
+        }
+        for (int level = 0; level <= levels; level++) {
+            pyramid[level] = null;
+        }
+        if (rawResult == null && active.isTryInverted()) {
+            // 深色底浅色码：原图各层都失败后再解码一次反色的原图
+            pointScale = 1;
+            rawResult = decodeGroups(readers, invert(lastSource), count, binarizerWorkspaces[0]);
+        }
+        if (rawResult == null && active.isTryRotated() && oneDGroup >= 0
+                && readers[oneDGroup] != null) {
+            // 竖直的一维码：一维码解码器只逐行扫描，旋转 90 度后再解码一次原图
+            pointScale = 1;
+            rotatedHeight = decodeHeight;
+            rawResult = decodeGroup(readers, oneDGroup, rotate(lastSource), binarizerWorkspaces[0]);
+            if (rawResult != null) {
+                rawResult = unrotate(rawResult, decodeHeight);
+            }
+            rotatedHeight = 0;
+        }
+        startLevel = rawResult != null && !stillImages
+                ? Integer.numberOfTrailingZeros(pointScale) : MAX_PYRAMID_LEVEL;
+        if (rawResult != null && (pointScale != 1 || offsetX != 0 || offsetY != 0)) {
+            rawResult = transform(rawResult, pointScale, offsetX, offsetY);
+        }
+        pointScale = 1;
+        roiTracker.endFrame(rawResult != null ? rawResult.getResultPoints() : null);
+        lastStatus = rawResult != null ? STATUS_DECODED : STATUS_NOT_FOUND;
+        finishFrame(frameStart, rawResult != null, active);
+        if (escalation != null) {
+            escalation.onFrameDecoded(rawResult != null);
+        }
+        return rawResult;
+    }
+
+    /**
+     * 解码 ByteBuffer 中的帧，如内存映射的 {@link FrameRecording}，不复制整帧
+     * 说明：只把解码区域覆盖的行读入复用的缓冲区，之后与 {@link #decode(byte[], int, int, int,
+     * int, int, int, int)} 相同。参数和返回值也相同，yuvData 从下标 0 开始为 Y 平面。
+     */
+    public Result decode(ByteBuffer yuvData, int dataWidth, int dataHeight, int rotation,
+                         int left, int top, int width, int height) {
+        checkCrop(dataWidth, dataHeight, rotation, left, top, width, height);
+        findUnrotatedRect(dataWidth, dataHeight, rotation, left, top, width, height);
+        int cropLeft = unrotatedRect[0];
+        int cropTop = unrotatedRect[1];
+        int cropWidth = unrotatedRect[2];
+        int cropHeight = unrotatedRect[3];
+        if (bufferCrop == null || bufferCrop.length != width * height) {
+            bufferCrop = new byte[width * height];
+        }
+        ByteBuffer source = yuvData.duplicate();
+        for (int y = 0; y < cropHeight; y++) {
+            source.position((cropTop + y) * dataWidth + cropLeft);
+            source.get(bufferCrop, y * cropWidth, cropWidth);
+        }
+        return decode(bufferCrop, cropWidth, cropHeight, rotation, 0, 0, width, height);
+    }
+
+    /**
+     * 多码模式：解码区域内的所有条码
+     * 说明：每个格式分组都尝试（QR 码用 QRCodeMultiReader，其余用 GenericMultipleBarcodeReader
+     * 在找到的条码周围分块继续查找），按内容和格式去重，不受格式调度影响。
+     * 参数同 {@link #decode}，总是解码完整区域
+     *
+     * @return 按找到的顺序排列的不重复结果，没有识别到时返回 null
+     */
+    public Result[] decodeMultiple(byte[] yuvData, int dataWidth, int dataHeight, int rotation,
+                                   int left, int top, int width, int height) {
+        long frameStart = System.nanoTime();
+        offsetX = 0;
+        offsetY = 0;
+        pointScale = 1;
+        BinaryBitmap bitmap = prepare(yuvData, dataWidth, dataHeight, rotation,
+                left, top, width, height);
+        if (bitmap == null) {
+            rejectFrame(profile);
+            return null;
+        }
+
+        if (multipleReaders == null) {
+            multipleReaders = new MultipleBarcodeReader[multiFormatReaders.length];
+            for (int i = 0; i < multipleReaders.length; i++) {
+                Collection<?> formats = (Collection<?>) hints.get(i).get(DecodeHintType.POSSIBLE_FORMATS);
+                if (formats.size() == 1 && formats.contains(BarcodeFormat.QR_CODE)) {
+                    multipleReaders[i] = new QRCodeMultiReader();
+                } else {
+                    multipleReaders[i] = new GenericMultipleBarcodeReader(multiFormatReaders[i]);
+                }
+            }
+        }
+
+        Map<String, Result> distinct = new LinkedHashMap<String, Result>();
+        ReusableHybridBinarizer.Workspace workspace = binarizerWorkspaces[0];
+        for (int group = 0; group < multipleReaders.length; group++) {
+            long start = System.nanoTime();
+            long binarizeStart = workspace.getBinarizeNanos();
+            try {
+                // GenericMultipleBarcodeReader 会用传入的参数覆盖解码器的设置，必须带上本组的参数
+                Result[] results = multipleReaders[group].decodeMultiple(bitmap, hints.get(group));
+                for (Result result : results) {
+                    String key = result.getBarcodeFormat() + ":" + result.getText();
+                    if (!distinct.containsKey(key)) {
+                        distinct.put(key, result);
+                    }
+                }
+                scheduler.onDecoded(group);
+            } catch (ReaderException re) {
+            } finally {
+                multiFormatReaders[group].reset();
+                recordDecode(group, start, binarizeStart, workspace);
+            }
+        }
+        finishFrame(frameStart, !distinct.isEmpty(), profile);
+        if (distinct.isEmpty()) {
+            lastStatus = STATUS_NOT_FOUND;
+            return null;
+        }
+        lastStatus = STATUS_DECODED;
+        return distinct.values().toArray(new Result[distinct.size()]);
+    }
+
+    /**
+     * 上一次 {@link #decode} 或 {@link #decodeMultiple} 的结果状态
+     */
+    public int getLastStatus() {
+        return lastStatus;
+    }
+
+    /**
+     * 上一次解码所用的亮度数据（解码区域旋转后的灰度图），未解码时为 null；
+     * 其缓冲区会被下一帧复用，需要保留时应自行复制
+     */
+    public PlanarYUVLuminanceSource getLastSource() {
+        return lastSource;
+    }
+
+    /**
+     * 解码区域较大时先尝试缩小后的图像，最多缩小多少倍：1（不缩小）、2 或 4，默认 4
+     */
+    public void setMaxDownsample(int factor) {
+        if (factor != 1 && factor != 2 && factor != 4) {
+            throw new IllegalArgumentException("Unsupported downsample factor: " + factor);
+        }
+        pyramidLevel = Integer.numberOfTrailingZeros(factor);
+        startLevel = pyramidLevel;
+    }
+
+    /**
+     * 逐级加码：每帧按 escalation 的当前级别选择配置，代替构造时的配置决定解码提示、缩小倍数、
+     * 反色和旋转，级别配置了格式时只识别其中的格式；识别结果反馈给 escalation。
+     * 多码模式不受影响。为 null 时关闭，默认关闭
+     */
+    public void setEscalation(DecodeEscalation escalation) {
+        this.escalation = escalation;
+        levelReaders = null;
+        if (escalation != null) {
+            levelReaders = new MultiFormatReader[escalation.getLevelCount()][];
+            for (int i = 0; i < levelReaders.length; i++) {
+                levelReaders[i] = createReaders(escalation.getProfile(i), true, null);
+            }
+        }
+        startLevel = MAX_PYRAMID_LEVEL;
+    }
+
+    /**
+     * 是否跟踪上一帧找到的条码、只解码其周围的区域，默认开启
+     */
+    public void setRoiTracking(boolean roiTracking) {
+        this.roiTracking = roiTracking;
+        if (!roiTracking) {
+            roiTracker.reset();
+        }
+    }
+
+    /**
+     * 静态图片模式：每张图片互不相关，不跟踪上一张的条码位置、不做模糊筛选，
+     * 每张都尝试所有格式分组，也不沿用上一张识别成功的缩小倍数。图片尺寸与上一张不同时
+     * 先释放缓冲池，缓冲区只保留当前尺寸的一套，不随不同尺寸的图片累积。默认关闭（预览帧模式）
+     */
+    public void setStillImageMode(boolean stillImages) {
+        this.stillImages = stillImages;
+        setRoiTracking(!stillImages);
+        startLevel = pyramidLevel;
+    }
+
+    /**
+     * 本引擎（或共享的）各环节耗时统计
+     */
+    public DecodeMetrics getMetrics() {
+        return metrics;
+    }
+
+    FramePreFilter getPreFilter() {
+        return preFilter;
+    }
+
+    /**
+     * 释放缓存的缓冲区
+     */
+    public void clear() {
+        bufferPool.clear();
+        bufferCrop = null;
+        invertedData = null;
+        rotatedData = null;
+        lastSource = null;
+        roiTracker.reset();
+    }
+
+    /**
+     * 快速筛选后旋转裁剪解码区域并二值化
+     *
+     * @return 被筛选掉时返回 null，原因记录在 lastStatus 中
+     */
+    private BinaryBitmap prepare(byte[] yuvData, int dataWidth, int dataHeight, int rotation,
+                                 int left, int top, int width, int height) {
+        lastSource = null;
+        checkCrop(dataWidth, dataHeight, rotation, left, top, width, height);
+        if (stillImages && (width != stillWidth || height != stillHeight)) {
+            bufferPool.clear();
+            stillWidth = width;
+            stillHeight = height;
+        }
+
+        long start = System.nanoTime();
+        int frameQuality = FramePreFilter.FRAME_OK;
+        if (!stillImages) {
+            frameQuality = checkFrame(yuvData, dataWidth, dataHeight, rotation,
+                    left, top, width, height);
+            metrics.recordStage(DecodeMetrics.STAGE_PRE_FILTER, System.nanoTime() - start);
+        }
+        if (frameQuality == FramePreFilter.FRAME_BLURRY) {
+            lastStatus = STATUS_BLURRY;
+            return null;
+        } else if (frameQuality != FramePreFilter.FRAME_OK) {
+            lastStatus = STATUS_NO_CONTENT;
+            return null;
+        }
+
+        // 只旋转解码区域，写入复用的缓冲区
+        start = System.nanoTime();
+        byte[] cropData = bufferPool.obtain(width * height);
+        PlanarYUVLuminanceSource source = PlanarYUVLuminanceSource.fromRotatedCrop(
+                yuvData, dataWidth, dataHeight, rotation, left, top, width, height, cropData);
+        metrics.recordStage(DecodeMetrics.STAGE_ROTATE, System.nanoTime() - start);
+        lastSource = source;
+        return new BinaryBitmap(new ReusableHybridBinarizer(source, binarizerWorkspaces[0]));
+    }
+
+    private static void checkCrop(int dataWidth, int dataHeight, int rotation,
+                                  int left, int top, int width, int height) {
+        if (left < 0 || top < 0 || width <= 0 || height <= 0
+                || left + width > PlanarYUVRotator.rotatedWidth(dataWidth, dataHeight, rotation)
+                || top + height > PlanarYUVRotator.rotatedHeight(dataWidth, dataHeight, rotation)) {
+            throw new IllegalArgumentException(
+                    "Crop rectangle does not fit within image data.");
+        }
+    }
+
+    /**
+     * 在未旋转的帧数据中找到解码区域对应的矩形，做快速筛选
+     */
+    private int checkFrame(byte[] yuvData, int dataWidth, int dataHeight, int rotation,
+                           int left, int top, int width, int height) {
+        findUnrotatedRect(dataWidth, dataHeight, rotation, left, top, width, height);
+        return preFilter.check(yuvData, dataWidth, unrotatedRect[0], unrotatedRect[1],
+                unrotatedRect[2], unrotatedRect[3]);
+    }
+
+    /**
+     * 解码区域在未旋转的帧数据中对应的矩形，写入 unrotatedRect
+     */
+    private void findUnrotatedRect(int dataWidth, int dataHeight, int rotation,
+                                   int left, int top, int width, int height) {
+        int[] rect = unrotatedRect;
+        switch (rotation) {
+            case 0:
+                rect[0] = left;
+                rect[1] = top;
+                break;
+            case 90:
+                rect[0] = top;
+                rect[1] = dataHeight - left - width;
+                break;
+            case 180:
+                rect[0] = dataWidth - left - width;
+                rect[1] = dataHeight - top - height;
+                break;
+            case 270:
+                rect[0] = dataWidth - top - height;
+                rect[1] = left;
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported rotation: " + rotation);
+        }
+        boolean transposed = rotation == 90 || rotation == 270;
+        rect[2] = transposed ? height : width;
+        rect[3] = transposed ? width : height;
+    }
+
+    /**
+     * 按分组顺序尝试所有分组
+     */
+    private int planAllGroups() {
+        for (int i = 0; i < multiFormatReaders.length; i++) {
+            plan[i] = i;
+        }
+        return multiFormatReaders.length;
+    }
+
+    /**
+     * 按计划依次用各分组的解码器解码，二值化结果缓存在 bitmap 中，各分组共用
+     */
+    private Result decodeGroups(MultiFormatReader[] readers, BinaryBitmap bitmap, int count,
+                                ReusableHybridBinarizer.Workspace workspace) {
+        for (int i = 0; i < count; i++) {
+            Result result = decodeGroup(readers, plan[i], bitmap, workspace);
+            if (result != null) {
+                return result;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 用一个分组的解码器解码，该分组没有解码器时跳过
+     */
+    private Result decodeGroup(MultiFormatReader[] readers, int group, BinaryBitmap bitmap,
+                               ReusableHybridBinarizer.Workspace workspace) {
+        MultiFormatReader multiFormatReader = readers[group];
+        if (multiFormatReader == null) {
+            return null;
+        }
+        long start = System.nanoTime();
+        long binarizeStart = workspace.getBinarizeNanos();
+        try {
+            Result result = multiFormatReader.decodeWithState(bitmap);
+            scheduler.onDecoded(group);
+            return result;
+        } catch (ReaderException re) {
+            return null;
+        } finally {
+            multiFormatReader.reset();
+            recordDecode(group, start, binarizeStart, workspace);
+        }
+    }
+
+    /**
+     * 反色的解码区域，写入复用的缓冲区
+     */
+    private BinaryBitmap invert(PlanarYUVLuminanceSource source) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        byte[] matrix = source.getMatrix();
+        if (invertedData == null || invertedData.length != width * height) {
+            invertedData = new byte[width * height];
+        }
+        for (int i = 0; i < invertedData.length; i++) {
+            invertedData[i] = (byte) (255 - (matrix[i] & 0xFF));
+        }
+        return new BinaryBitmap(new ReusableHybridBinarizer(new PlanarYUVLuminanceSource(
+                invertedData, width, height, 0, 0, width, height), binarizerWorkspaces[0]));
+    }
+
+    /**
+     * 顺时针旋转 90 度的解码区域，写入复用的缓冲区
+     */
+    private BinaryBitmap rotate(PlanarYUVLuminanceSource source) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        if (rotatedData == null || rotatedData.length != width * height) {
+            rotatedData = new byte[width * height];
+        }
+        PlanarYUVRotator.rotate(source.getMatrix(), width, height, 90, rotatedData);
+        return new BinaryBitmap(new ReusableHybridBinarizer(new PlanarYUVLuminanceSource(
+                rotatedData, height, width, 0, 0, height, width), binarizerWorkspaces[0]));
+    }
+
+    /**
+     * 将旋转 90 度的图像中的点转回原图坐标，height 为原图的高度
+     */
+    private static ResultPoint unrotate(ResultPoint point, int height) {
+        return new ResultPoint(point.getY(), height - 1 - point.getX());
+    }
+
+    private static Result unrotate(Result result, int height) {
+        ResultPoint[] points = result.getResultPoints();
+        if (points == null) {
+            return result;
+        }
+        ResultPoint[] unrotated = new ResultPoint[points.length];
+        for (int i = 0; i < points.length; i++) {
+            if (points[i] != null) {
+                unrotated[i] = unrotate(points[i], height);
+            }
+        }
+        Result moved = new Result(result.getText(), result.getRawBytes(), unrotated,
+                result.getBarcodeFormat(), result.getTimestamp());
+        moved.putAllMetadata(result.getResultMetadata());
+        return moved;
+    }
+
+    /**
+     * 被快速筛选跳过的帧单独计数，不计入解码耗时和成功率
+     */
+    private void rejectFrame(DecodeProfile used) {
+        metrics.onFrameRejected();
+        used.getMetrics().onFrameRejected();
+    }
+
+    /**
+     * 一帧处理完毕：记录整帧耗时和结果，本引擎的统计和所用配置的统计各一份
+     */
+    private void finishFrame(long frameStart, boolean succeeded, DecodeProfile used) {
+        long elapsed = System.nanoTime() - frameStart;
+        metrics.recordStage(DecodeMetrics.STAGE_DECODE_TOTAL, elapsed);
+        metrics.onFrameDecoded(succeeded);
+        DecodeMetrics profileMetrics = used.getMetrics();
+        profileMetrics.recordStage(DecodeMetrics.STAGE_DECODE_TOTAL, elapsed);
+        profileMetrics.onFrameDecoded(succeeded);
+    }
+
+    /**
+     * 解码器的耗时中扣除其间的二值化耗时，二者分别统计
+     */
+    private void recordDecode(int group, long start, long binarizeStart,
+                              ReusableHybridBinarizer.Workspace workspace) {
+        long binarize = workspace.getBinarizeNanos() - binarizeStart;
+        if (binarize > 0) {
+            metrics.recordStage(DecodeMetrics.STAGE_BINARIZE, binarize);
+        }
+        metrics.recordDecode(group, System.nanoTime() - start - binarize);
+    }
+
+    /**
+     * 将结果点从所解码的层换算到完整区域的坐标：先放大 scale 倍，再平移
+     */
+    private static Result transform(Result result, int scale, int dx, int dy) {
+        ResultPoint[] points = result.getResultPoints();
+        if (points == null) {
+            return result;
+        }
+        ResultPoint[] translated = new ResultPoint[points.length];
+        for (int i = 0; i < points.length; i++) {
+            if (points[i] != null) {
+                translated[i] = new ResultPoint(points[i].getX() * scale + dx,
+                        points[i].getY() * scale + dy);
+            }
+        }
+        Result moved = new Result(result.getText(), result.getRawBytes(), translated,
+                result.getBarcodeFormat(), result.getTimestamp());
+        moved.putAllMetadata(result.getResultMetadata());
+        return moved;
+    }
+
+    /**
+     * 把解码器找到的候选点换算到完整区域的坐标，记录后转给调用方的回调
+     */
+    private final class TrackingPointCallback implements ResultPointCallback {
+
+        private final ResultPointCallback delegate;
+
+        TrackingPointCallback(ResultPointCallback delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void foundPossibleResultPoint(ResultPoint point) {
+            if (rotatedHeight != 0) {
+                point = unrotate(point, rotatedHeight);
+            }
+            if (pointScale != 1 || offsetX != 0 || offsetY != 0) {
+                point = new ResultPoint(point.getX() * pointScale + offsetX,
+                        point.getY() * pointScale + offsetY);
+            }
+            roiTracker.addCandidate(point.getX(), point.getY());
+            if (delegate != null) {
+                delegate.foundPossibleResultPoint(point);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,99 @@
+package com.liangyn.zxing;
+
+/**
+ * 逐级加码的解码策略：刚开始扫描时每帧只做廉价的解码，连续失败才逐级换用更耗时的配置
+ * 说明：每一级是一个 {@link DecodeProfile}，按代价从低到高排列。连续 failuresPerLevel 帧
+ * 解码了但没有识别到条码时升一级（最高一级保持不变），任一帧识别成功后回到第一级。
+ * 被快速筛选掉的帧（没有内容或模糊）不计入，用户没有对准条码时不会升级。
+ * 所有解码线程共用一个实例，各级的耗时和成功率记录在各自配置的统计中。
+ */
+public final class DecodeEscalation {
+
+    /**
+     * 廉价的预览帧解码：只识别 QR 码和商品条码，不加 TRY_HARDER，只解码缩小 2～4 倍的图像
+     */
+    public static final DecodeProfile QUICK = new DecodeProfile("QUICK",
+            DecodeProfile.fastFormats(), false, false, false, false, false, 2, 4);
+
+    private final DecodeProfile[] levels;
+    private final int failuresPerLevel;
+    private int level;
+    private int failures;
+    private long escalations;
+
+    /**
+     * 依次为 {@link #QUICK}、{@link DecodeProfile#BALANCED}（所有格式，失败时解码原图）、
+     * {@link DecodeProfile#EXHAUSTIVE}（TRY_HARDER、反色、旋转的一维码）
+     */
+    public static DecodeEscalation standard(int failuresPerLevel) {
+        return new DecodeEscalation(new DecodeProfile[]{
+                QUICK, DecodeProfile.BALANCED, DecodeProfile.EXHAUSTIVE
+        }, failuresPerLevel);
+    }
+
+    /**
+     * @param levels           按代价从低到高排列的配置，至少一个
+     * @param failuresPerLevel 连续多少帧识别失败后升一级
+     */
+    public DecodeEscalation(DecodeProfile[] levels, int failuresPerLevel) {
+        if (levels.length == 0) {
+            throw new IllegalArgumentException("No decode levels");
+        }
+        if (failuresPerLevel < 1) {
+            throw new IllegalArgumentException("Failures per level must be positive: "
+                    + failuresPerLevel);
+        }
+        this.levels = levels.clone();
+        this.failuresPerLevel = failuresPerLevel;
+    }
+
+    public int getLevelCount() {
+        return levels.length;
+    }
+
+    public DecodeProfile getProfile(int level) {
+        return levels[level];
+    }
+
+    /**
+     * 当前帧应使用的级别，0 为最廉价的一级
+     */
+    public synchronized int getLevel() {
+        return level;
+    }
+
+    /**
+     * 本次扫描共升级了多少次
+     */
+    public synchronized long getEscalations() {
+        return escalations;
+    }
+
+    /**
+     * 一帧解码完毕（未被快速筛选掉）
+     */
+    synchronized void onFrameDecoded(boolean succeeded) {
+        if (succeeded) {
+            level = 0;
+            failures = 0;
+        } else if (++failures >= failuresPerLevel && level < levels.length - 1) {
+            level++;
+            failures = 0;
+            escalations++;
+        }
+    }
+
+    /**
+     * 回到第一级，如开始新的一次扫描时
+     */
+    public synchronized void reset() {
+        level = 0;
+        failures = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "level=" + levels[level] + " escalations=" + escalations;
+    }
+
+}
@@ -30,29 +30,6 @@ final class DecodeFormatManager {
 
 	private static final Pattern COMMA_PATTERN = Pattern.compile(",");
 
-	static final Vector<BarcodeFormat> PRODUCT_FORMATS;
-	static final Vector<BarcodeFormat> ONE_D_FORMATS;
-	static final Vector<BarcodeFormat> QR_CODE_FORMATS;
-	static final Vector<BarcodeFormat> DATA_MATRIX_FORMATS;
-	static {
-		PRODUCT_FORMATS = new Vector<BarcodeFormat>(5);
-		PRODUCT_FORMATS.add(BarcodeFormat.UPC_A);
-		PRODUCT_FORMATS.add(BarcodeFormat.UPC_E);
-		PRODUCT_FORMATS.add(BarcodeFormat.EAN_13);
-		PRODUCT_FORMATS.add(BarcodeFormat.EAN_8);
-		// PRODUCT_FORMATS.add(BarcodeFormat.RSS14);
-		ONE_D_FORMATS = new Vector<BarcodeFormat>(PRODUCT_FORMATS.size() + 4);
-		ONE_D_FORMATS.add(BarcodeFormat.CODE_39);
-		ONE_D_FORMATS.add(BarcodeFormat.CODE_93);
-		ONE_D_FORMATS.add(BarcodeFormat.CODE_128);
-		ONE_D_FORMATS.add(BarcodeFormat.ITF);
-		ONE_D_FORMATS.addAll(PRODUCT_FORMATS);
-		QR_CODE_FORMATS = new Vector<BarcodeFormat>(1);
-		QR_CODE_FORMATS.add(BarcodeFormat.QR_CODE);
-		DATA_MATRIX_FORMATS = new Vector<BarcodeFormat>(1);
-		DATA_MATRIX_FORMATS.add(BarcodeFormat.DATA_MATRIX);
-	}
-
 	private DecodeFormatManager() {
 	}
 
@@ -77,6 +54,15 @@ final class DecodeFormatManager {
 				inputUri.getQueryParameter(Intents.Scan.MODE));
 	}
 
+	static DecodeProfile parseDecodeProfile(Intent intent) {
+		return DecodeProfile.forName(intent.getStringExtra(Intents.Scan.PROFILE));
+	}
+
+	static DecodeProfile parseDecodeProfile(Uri inputUri) {
+		return DecodeProfile.forName(inputUri
+				.getQueryParameter(Intents.Scan.PROFILE));
+	}
+
 	private static Vector<BarcodeFormat> parseDecodeFormats(
 			Iterable<String> scanFormats, String decodeMode) {
 		if (scanFormats != null) {
@@ -92,16 +78,16 @@ final class DecodeFormatManager {
 		}
 		if (decodeMode != null) {
 			if (Intents.Scan.ONE_D_MODE.equals(decodeMode)) {
-				return ONE_D_FORMATS;
+				return DecodeFormats.ONE_D_FORMATS;
 			}
 			if (Intents.Scan.PRODUCT_MODE.equals(decodeMode)) {
-				return PRODUCT_FORMATS;
+				return DecodeFormats.PRODUCT_FORMATS;
 			}
 			if (Intents.Scan.QR_CODE_MODE.equals(decodeMode)) {
-				return QR_CODE_FORMATS;
+				return DecodeFormats.QR_CODE_FORMATS;
 			}
 			if (Intents.Scan.DATA_MATRIX_MODE.equals(decodeMode)) {
-				return DATA_MATRIX_FORMATS;
+				return DecodeFormats.DATA_MATRIX_FORMATS;
 			}
 		}
 		return null;
@@ -0,0 +1,78 @@
+package com.liangyn.zxing;
+
+/**
+ * 按本次扫描的识别历史调度各组条码格式的解码器
+ * 说明：格式分组见 {@link DecodeFormats#splitFormatGroups}。最近识别成功过的分组
+ * 每帧都尝试，按命中次数排序；其余分组只每隔 PROBE_INTERVAL 帧探测一次。
+ * 还没有任何命中（或命中已过期）时每帧尝试全部分组。所有解码线程共用一个实例。
+ */
+final class DecodeFormatScheduler {
+
+    /**
+     * 冷门分组每隔多少帧探测一次
+     */
+    private static final int PROBE_INTERVAL = 5;
+
+    /**
+     * 最近多少帧内有过命中的分组视为热门
+     */
+    private static final int HOT_WINDOW_FRAMES = 300;
+
+    private final int groupCount;
+    private final int[] hits;
+    private final long[] lastHitFrame;
+    private long frames;
+
+    DecodeFormatScheduler(int groupCount) {
+        this.groupCount = groupCount;
+        hits = new int[groupCount];
+        lastHitFrame = new long[groupCount];
+    }
+
+    int getGroupCount() {
+        return groupCount;
+    }
+
+    /**
+     * 安排当前帧要尝试的分组
+     *
+     * @param order 接收分组序号，按尝试顺序排列，长度至少为分组数
+     * @return 本帧要尝试的分组个数
+     */
+    synchronized int plan(int[] order) {
+        long frame = ++frames;
+        int count = 0;
+        // 热门分组按命中次数从高到低插入
+        for (int group = 0; group < groupCount; group++) {
+            if (isHot(group, frame)) {
+                int i = count++;
+                while (i > 0 && hits[order[i - 1]] < hits[group]) {
+                    order[i] = order[i - 1];
+                    i--;
+                }
+                order[i] = group;
+            }
+        }
+        boolean probeAll = count == 0;
+        for (int group = 0; group < groupCount; group++) {
+            if (!isHot(group, frame)
+                    && (probeAll || (frame + group) % PROBE_INTERVAL == 0)) {
+                order[count++] = group;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 某个分组识别成功
+     */
+    synchronized void onDecoded(int group) {
+        hits[group]++;
+        lastHitFrame[group] = frames;
+    }
+
+    private boolean isHot(int group, long frame) {
+        return hits[group] > 0 && frame - lastHitFrame[group] <= HOT_WINDOW_FRAMES;
+    }
+
+}
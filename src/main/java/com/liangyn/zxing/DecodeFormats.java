@@ -0,0 +1,88 @@
+package com.liangyn.zxing;
+
+import com.google.zxing.BarcodeFormat;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Vector;
+
+/**
+ * 条码格式的分类和分组，不依赖 Android，供 {@link DecodeEngine} 等在普通 JVM 中使用；
+ * 从 Intent/Uri 解析格式见 {@link DecodeFormatManager}
+ */
+final class DecodeFormats {
+
+    static final Vector<BarcodeFormat> PRODUCT_FORMATS;
+    static final Vector<BarcodeFormat> ONE_D_FORMATS;
+    static final Vector<BarcodeFormat> QR_CODE_FORMATS;
+    static final Vector<BarcodeFormat> DATA_MATRIX_FORMATS;
+
+    static {
+        PRODUCT_FORMATS = new Vector<BarcodeFormat>(5);
+        PRODUCT_FORMATS.add(BarcodeFormat.UPC_A);
+        PRODUCT_FORMATS.add(BarcodeFormat.UPC_E);
+        PRODUCT_FORMATS.add(BarcodeFormat.EAN_13);
+        PRODUCT_FORMATS.add(BarcodeFormat.EAN_8);
+        // PRODUCT_FORMATS.add(BarcodeFormat.RSS14);
+        ONE_D_FORMATS = new Vector<BarcodeFormat>(PRODUCT_FORMATS.size() + 4);
+        ONE_D_FORMATS.add(BarcodeFormat.CODE_39);
+        ONE_D_FORMATS.add(BarcodeFormat.CODE_93);
+        ONE_D_FORMATS.add(BarcodeFormat.CODE_128);
+        ONE_D_FORMATS.add(BarcodeFormat.ITF);
+        ONE_D_FORMATS.addAll(PRODUCT_FORMATS);
+        QR_CODE_FORMATS = new Vector<BarcodeFormat>(1);
+        QR_CODE_FORMATS.add(BarcodeFormat.QR_CODE);
+        DATA_MATRIX_FORMATS = new Vector<BarcodeFormat>(1);
+        DATA_MATRIX_FORMATS.add(BarcodeFormat.DATA_MATRIX);
+    }
+
+    private DecodeFormats() {
+    }
+
+    /**
+     * 未指定格式时默认识别的格式：一维码、QR 码和 Data Matrix
+     */
+    static Vector<BarcodeFormat> defaultDecodeFormats() {
+        Vector<BarcodeFormat> formats = new Vector<BarcodeFormat>();
+        formats.addAll(ONE_D_FORMATS);
+        formats.addAll(QR_CODE_FORMATS);
+        formats.addAll(DATA_MATRIX_FORMATS);
+        return formats;
+    }
+
+    /**
+     * 将要识别的格式分组，每组由一个 MultiFormatReader 解码：
+     * 一维码共用一组（共享行扫描），其余每种格式单独一组。
+     */
+    static List<Vector<BarcodeFormat>> splitFormatGroups(Collection<BarcodeFormat> formats) {
+        List<Vector<BarcodeFormat>> groups = new ArrayList<Vector<BarcodeFormat>>();
+        Vector<BarcodeFormat> oneD = new Vector<BarcodeFormat>();
+        for (BarcodeFormat format : formats) {
+            if (ONE_D_FORMATS.contains(format)) {
+                if (oneD.isEmpty()) {
+                    groups.add(oneD);
+                }
+                oneD.add(format);
+            } else {
+                Vector<BarcodeFormat> group = new Vector<BarcodeFormat>(1);
+                group.add(format);
+                groups.add(group);
+            }
+        }
+        return groups;
+    }
+
+    /**
+     * 各分组的名称，用于统计：单一格式为格式名，多种一维码的分组为 "1D"
+     */
+    static String[] formatGroupNames(List<Vector<BarcodeFormat>> groups) {
+        String[] names = new String[groups.size()];
+        for (int i = 0; i < names.length; i++) {
+            Vector<BarcodeFormat> group = groups.get(i);
+            names[i] = group.size() == 1 ? group.get(0).toString() : "1D";
+        }
+        return names;
+    }
+
+}
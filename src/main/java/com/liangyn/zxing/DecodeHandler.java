@@ -16,43 +16,55 @@
 
 package com.liangyn.zxing;
 
+import android.graphics.Rect;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
 import android.os.Message;
 
-import com.google.zxing.BinaryBitmap;
-import com.google.zxing.DecodeHintType;
-import com.google.zxing.MultiFormatReader;
-import com.google.zxing.ReaderException;
-import com.google.zxing.Result;
-import com.google.zxing.common.HybridBinarizer;
-
-import java.util.Hashtable;
+import java.util.Arrays;
 
 /**
  * YUV数据解码
+ * 说明：解码本身由 {@link DecodeEngine} 完成，这里只负责取扫描框区域和回传结果。
  */
 public final class DecodeHandler extends Handler {
 
 	private static final String TAG = DecodeHandler.class.getName();
 
+	/**
+	 * 预览帧需顺时针旋转 90° 显示（竖屏）
+	 */
+	private static final int PREVIEW_ROTATION = 90;
+
+	/**
+	 * 识别结果发出时的 System.nanoTime()，主线程据此统计 STAGE_UI_HANDOFF
+	 */
+	static final String SENT_NANOS = "sent_nanos";
+
 	private final CaptureActivity activity;
-	private final MultiFormatReader multiFormatReader;
+	/**
+	 * 所在解码线程在 DecodeWorkerPool 中的序号，随解码结果回传
+	 */
+	private final int index;
+	private final DecodeEngine engine;
 
-	DecodeHandler(CaptureActivity activity,
-			Hashtable<DecodeHintType, Object> hints) {
-		multiFormatReader = new MultiFormatReader();
-		multiFormatReader.setHints(hints);
+	DecodeHandler(CaptureActivity activity, int index, DecodeEngine engine) {
 		this.activity = activity;
+		this.index = index;
+		this.engine = engine;
 	}
 
 	@Override
 	public void handleMessage(Message message) {
         if (message.what == R.id.scan_decode) {
-            decode((byte[]) message.obj, message.arg1, message.arg2);
+            decode((byte[]) message.obj, message.arg1, message.arg2, false);
+
+        } else if (message.what == R.id.scan_decode_multiple) {
+            decode((byte[]) message.obj, message.arg1, message.arg2, true);
 
         } else if (message.what == R.id.scan_quit) {
+            engine.clear();
             Looper.myLooper().quit();
 
         }
@@ -63,43 +75,50 @@ public final class DecodeHandler extends Handler {
 	 * @param data YUV 数据解码区域
 	 * @param width 解码区域的宽度
 	 * @param height 解码区域的高度
+	 * @param multiple 是否识别扫描框内的所有条码，结果为 Result[]
 	 */
-	private void decode(byte[] data, int width, int height) {
-		Result rawResult = null;
-
+	private void decode(byte[] data, int width, int height, boolean multiple) {
 		// modify here
-		byte[] rotatedData = new byte[data.length];
-		for (int y = 0; y < height; y++) {
-			for (int x = 0; x < width; x++)
-				rotatedData[x * height + height - y - 1] = data[x + y * width];
-		}
-		int tmp = width; // Here we are swapping, that's the difference to #11
-		width = height;
-		height = tmp;
-
-		PlanarYUVLuminanceSource source = CameraManager.get()
-				.buildLuminanceSource(rotatedData, width, height);
-		BinaryBitmap bitmap = new BinaryBitmap(new HybridBinarizer(source));
-		try {
-			rawResult = multiFormatReader.decodeWithState(bitmap);
-		} catch (ReaderException re) {
-		} finally {
-			multiFormatReader.reset();
+		Rect rect = CameraManager.get().getFrameRectInPreview();
+		CameraManager.get().checkPreviewFormat();
+		Object rawResult;
+		long begin = ScanTrace.begin();
+		if (multiple) {
+			rawResult = engine.decodeMultiple(data, width, height, PREVIEW_ROTATION,
+					rect.left, rect.top, rect.width(), rect.height());
+		} else {
+			rawResult = engine.decode(data, width, height, PREVIEW_ROTATION,
+					rect.left, rect.top, rect.width(), rect.height());
 		}
+		ScanTrace.end(rawResult != null ? "decode.found" : "decode.notFound", begin);
 
 		if (rawResult != null) {
 			Message message = Message.obtain(activity.getHandler(),
-					R.id.scan_decode_succeed, rawResult);
+					R.id.scan_decode_succeed, index, 0, rawResult);
+			// 缓冲区会被下一帧复用，只复制扫描框的灰度数据，位图由使用方按需生成
+			PlanarYUVLuminanceSource source = engine.getLastSource();
+			int thumbnailWidth = source.getWidth();
+			int thumbnailHeight = source.getHeight();
+			byte[] luminances = Arrays.copyOf(source.getMatrix(),
+					thumbnailWidth * thumbnailHeight);
 			Bundle bundle = new Bundle();
-			bundle.putParcelable(DecodeThread.BARCODE_BITMAP,
-					source.renderCroppedGreyscaleBitmap());
+			BarcodeThumbnail.putInto(bundle, luminances, thumbnailWidth,
+					thumbnailHeight);
 			message.setData(bundle);
+			bundle.putLong(SENT_NANOS, System.nanoTime());
 			message.sendToTarget();
+		} else if (engine.getLastStatus() == DecodeEngine.STATUS_BLURRY) {
+			Message.obtain(activity.getHandler(), R.id.scan_decode_blurry,
+					index, 0).sendToTarget();
 		} else {
-			Message message = Message.obtain(activity.getHandler(),
-					R.id.scan_decode_failed);
-			message.sendToTarget();
+			sendDecodeFailed();
 		}
 	}
 
+	private void sendDecodeFailed() {
+		Message message = Message.obtain(activity.getHandler(),
+				R.id.scan_decode_failed, index, 0);
+		message.sendToTarget();
+	}
+
 }
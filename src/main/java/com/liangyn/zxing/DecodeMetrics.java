@@ -0,0 +1,375 @@
+package com.liangyn.zxing;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 解码流程的性能统计：各环节耗时的直方图和帧计数
+ * 说明：计数和直方图都是原子变量，各解码线程和主线程直接写入，不加锁；
+ * {@link #snapshot()} 得到某一时刻的副本，各项之间不保证严格一致。
+ * 旋转和裁剪在同一次遍历中完成，统计为同一个环节。
+ */
+public final class DecodeMetrics {
+
+    /**
+     * 相邻两帧预览数据到达的间隔
+     */
+    public static final int STAGE_FRAME_INTERVAL = 0;
+
+    /**
+     * 解码前的快速筛选
+     */
+    public static final int STAGE_PRE_FILTER = 1;
+
+    /**
+     * 扫描框区域的旋转裁剪
+     */
+    public static final int STAGE_ROTATE = 2;
+
+    /**
+     * 缩小解码区域
+     */
+    public static final int STAGE_DOWNSAMPLE = 3;
+
+    /**
+     * 二值化
+     */
+    public static final int STAGE_BINARIZE = 4;
+
+    /**
+     * 识别结果从解码线程发出到主线程交给 CaptureActivity
+     */
+    public static final int STAGE_UI_HANDOFF = 5;
+    /**
+     * 从预览帧到达主线程到解码线程处理完该帧（含等待空闲线程的时间）
+     */
+    public static final int STAGE_FRAME_LATENCY = 6;
+    /**
+     * 解码引擎处理一帧的总耗时，从筛选到得出结果
+     */
+    public static final int STAGE_DECODE_TOTAL = 7;
+
+    private static final String[] STAGE_NAMES = {
+            "frame-interval", "pre-filter", "rotate", "downsample", "binarize", "ui-handoff",
+            "frame-latency", "decode-total"
+    };
+
+    private final Histogram[] stages = new Histogram[STAGE_NAMES.length];
+    /**
+     * 每个格式分组一个直方图，统计该组解码器的耗时（不含二值化）
+     */
+    private final String[] formatGroups;
+    private final Histogram[] decodes;
+
+    private final AtomicLong framesReceived = new AtomicLong();
+    private final AtomicLong framesDropped = new AtomicLong();
+    private final AtomicLong framesRejected = new AtomicLong();
+    private final AtomicLong framesDecoded = new AtomicLong();
+    private final AtomicLong framesSucceeded = new AtomicLong();
+
+    /**
+     * @param formatGroups 各格式分组的名称，如 "QR_CODE"，顺序与分组序号一致
+     */
+    public DecodeMetrics(String[] formatGroups) {
+        for (int i = 0; i < stages.length; i++) {
+            stages[i] = new Histogram();
+        }
+        this.formatGroups = formatGroups.clone();
+        decodes = new Histogram[formatGroups.length];
+        for (int i = 0; i < decodes.length; i++) {
+            decodes[i] = new Histogram();
+        }
+    }
+
+    /**
+     * 记录某个环节的耗时
+     *
+     * @param stage 如 {@link #STAGE_ROTATE}
+     */
+    public void recordStage(int stage, long nanos) {
+        stages[stage].record(nanos);
+    }
+
+    /**
+     * 记录某个格式分组的解码耗时
+     */
+    public void recordDecode(int group, long nanos) {
+        decodes[group].record(nanos);
+    }
+
+    /**
+     * 收到一帧预览数据
+     */
+    public void onFrameReceived() {
+        framesReceived.incrementAndGet();
+    }
+
+    /**
+     * 一帧没有解码就被丢弃（解码线程都在忙时被更新的帧替换）
+     */
+    public void onFrameDropped() {
+        framesDropped.incrementAndGet();
+    }
+
+    /**
+     * 一帧被快速筛选跳过（没有内容或模糊），不计入已解码的帧
+     */
+    public void onFrameRejected() {
+        framesRejected.incrementAndGet();
+    }
+
+    /**
+     * 一帧通过快速筛选并解码完成
+     */
+    public void onFrameDecoded(boolean succeeded) {
+        framesDecoded.incrementAndGet();
+        if (succeeded) {
+            framesSucceeded.incrementAndGet();
+        }
+    }
+
+    public void reset() {
+        for (Histogram histogram : stages) {
+            histogram.reset();
+        }
+        for (Histogram histogram : decodes) {
+            histogram.reset();
+        }
+        framesReceived.set(0);
+        framesDropped.set(0);
+        framesRejected.set(0);
+        framesDecoded.set(0);
+        framesSucceeded.set(0);
+    }
+
+    public Snapshot snapshot() {
+        return new Snapshot(this);
+    }
+
+    /**
+     * 固定分桶的耗时直方图，单位微秒
+     */
+    public static final class Histogram {
+
+        /**
+         * 各桶的上限（微秒，不含），最后一桶不设上限
+         */
+        private static final long[] BUCKET_BOUNDS_MICROS = {
+                100, 250, 500, 1000, 2500, 5000, 10000, 25000, 50000, 100000
+        };
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKET_BOUNDS_MICROS.length + 1);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalMicros = new AtomicLong();
+        private final AtomicLong maxMicros = new AtomicLong();
+
+        Histogram() {
+        }
+
+        /**
+         * 各桶的上限（微秒，不含），桶数比上限多一个，最后一桶不设上限
+         */
+        public static long[] getBucketBoundsMicros() {
+            return BUCKET_BOUNDS_MICROS.clone();
+        }
+
+        void record(long nanos) {
+            long micros = nanos / 1000L;
+            int bucket = 0;
+            while (bucket < BUCKET_BOUNDS_MICROS.length && micros >= BUCKET_BOUNDS_MICROS[bucket]) {
+                bucket++;
+            }
+            counts.incrementAndGet(bucket);
+            count.incrementAndGet();
+            totalMicros.addAndGet(micros);
+            long max = maxMicros.get();
+            while (micros > max && !maxMicros.compareAndSet(max, micros)) {
+                max = maxMicros.get();
+            }
+        }
+
+        void reset() {
+            for (int i = 0; i < counts.length(); i++) {
+                counts.set(i, 0);
+            }
+            count.set(0);
+            totalMicros.set(0);
+            maxMicros.set(0);
+        }
+
+    }
+
+    /**
+     * 某一时刻的统计副本
+     */
+    public static final class Snapshot {
+
+        private final String[] formatGroups;
+        private final long[][] stageCounts;
+        private final long[][] decodeCounts;
+        private final long[] stageTotals;
+        private final long[] decodeTotals;
+        private final long[] stageMax;
+        private final long[] decodeMax;
+        private final long framesReceived;
+        private final long framesDropped;
+        private final long framesRejected;
+        private final long framesDecoded;
+        private final long framesSucceeded;
+
+        Snapshot(DecodeMetrics metrics) {
+            formatGroups = metrics.formatGroups;
+            stageCounts = new long[metrics.stages.length][];
+            stageTotals = new long[metrics.stages.length];
+            stageMax = new long[metrics.stages.length];
+            for (int i = 0; i < metrics.stages.length; i++) {
+                stageCounts[i] = copyCounts(metrics.stages[i]);
+                stageTotals[i] = metrics.stages[i].totalMicros.get();
+                stageMax[i] = metrics.stages[i].maxMicros.get();
+            }
+            decodeCounts = new long[metrics.decodes.length][];
+            decodeTotals = new long[metrics.decodes.length];
+            decodeMax = new long[metrics.decodes.length];
+            for (int i = 0; i < metrics.decodes.length; i++) {
+                decodeCounts[i] = copyCounts(metrics.decodes[i]);
+                decodeTotals[i] = metrics.decodes[i].totalMicros.get();
+                decodeMax[i] = metrics.decodes[i].maxMicros.get();
+            }
+            framesReceived = metrics.framesReceived.get();
+            framesDropped = metrics.framesDropped.get();
+            framesRejected = metrics.framesRejected.get();
+            framesDecoded = metrics.framesDecoded.get();
+            framesSucceeded = metrics.framesSucceeded.get();
+        }
+
+        private static long[] copyCounts(Histogram histogram) {
+            long[] counts = new long[histogram.counts.length()];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = histogram.counts.get(i);
+            }
+            return counts;
+        }
+
+        /**
+         * 某个环节各桶的次数，桶的划分见 {@link Histogram#getBucketBoundsMicros()}
+         */
+        public long[] getStageBuckets(int stage) {
+            return stageCounts[stage].clone();
+        }
+
+        public long getStageCount(int stage) {
+            return sum(stageCounts[stage]);
+        }
+
+        /**
+         * 某个环节的平均耗时（微秒）
+         */
+        public long getStageMeanMicros(int stage) {
+            long count = getStageCount(stage);
+            return count == 0 ? 0 : stageTotals[stage] / count;
+        }
+
+        public long getStageMaxMicros(int stage) {
+            return stageMax[stage];
+        }
+
+        public int getFormatGroupCount() {
+            return formatGroups.length;
+        }
+
+        public String getFormatGroup(int group) {
+            return formatGroups[group];
+        }
+
+        public long[] getDecodeBuckets(int group) {
+            return decodeCounts[group].clone();
+        }
+
+        public long getDecodeCount(int group) {
+            return sum(decodeCounts[group]);
+        }
+
+        public long getDecodeMeanMicros(int group) {
+            long count = getDecodeCount(group);
+            return count == 0 ? 0 : decodeTotals[group] / count;
+        }
+
+        public long getDecodeMaxMicros(int group) {
+            return decodeMax[group];
+        }
+
+        public long getFramesReceived() {
+            return framesReceived;
+        }
+
+        public long getFramesDropped() {
+            return framesDropped;
+        }
+
+        /**
+         * 被快速筛选跳过的帧数
+         */
+        public long getFramesRejected() {
+            return framesRejected;
+        }
+
+        public long getFramesDecoded() {
+            return framesDecoded;
+        }
+
+        public long getFramesSucceeded() {
+            return framesSucceeded;
+        }
+
+        /**
+         * 识别成功的帧占已解码帧（不含被筛选跳过的帧）的比例
+         */
+        public double getSuccessRate() {
+            return framesDecoded == 0 ? 0 : (double) framesSucceeded / framesDecoded;
+        }
+
+        private static long sum(long[] counts) {
+            long sum = 0;
+            for (long count : counts) {
+                sum += count;
+            }
+            return sum;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder result = new StringBuilder(512);
+            result.append("frames received=").append(framesReceived)
+                    .append(" dropped=").append(framesDropped)
+                    .append(" rejected=").append(framesRejected)
+                    .append(" decoded=").append(framesDecoded)
+                    .append(" succeeded=").append(framesSucceeded);
+            for (int i = 0; i < stageCounts.length; i++) {
+                appendHistogram(result, STAGE_NAMES[i], stageCounts[i], getStageMeanMicros(i),
+                        stageMax[i]);
+            }
+            for (int i = 0; i < decodeCounts.length; i++) {
+                appendHistogram(result, "decode " + formatGroups[i], decodeCounts[i],
+                        getDecodeMeanMicros(i), decodeMax[i]);
+            }
+            return result.toString();
+        }
+
+        private static void appendHistogram(StringBuilder result, String name, long[] counts,
+                                            long mean, long max) {
+            result.append('\n').append(name).append(": n=").append(sum(counts))
+                    .append(" mean=").append(mean).append("us max=").append(max).append("us [");
+            for (int i = 0; i < counts.length; i++) {
+                if (i > 0) {
+                    result.append(' ');
+                }
+                result.append(i < Histogram.BUCKET_BOUNDS_MICROS.length
+                        ? "<" + Histogram.BUCKET_BOUNDS_MICROS[i] : ">=" + Histogram.BUCKET_BOUNDS_MICROS[i - 1])
+                        .append(':').append(counts[i]);
+            }
+            result.append(']');
+        }
+
+    }
+
+}
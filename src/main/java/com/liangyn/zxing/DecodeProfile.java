@@ -0,0 +1,179 @@
+package com.liangyn.zxing;
+
+import com.google.zxing.BarcodeFormat;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Vector;
+
+/**
+ * 解码配置：TRY_HARDER、PURE_BARCODE、ASSUME_GS1 等提示，是否尝试反色和旋转，缩小的倍数范围，
+ * 以及调用方未指定格式时识别哪些格式
+ * 说明：内置的配置按名称选择，见 {@link Intents.Scan#PROFILE}。每个配置累计自己的解码耗时和
+ * 成功率（{@link #getMetrics()}，本进程内所有使用该配置的扫码），便于为不同场景选择配置。
+ */
+public final class DecodeProfile {
+
+    /**
+     * 快：不加 TRY_HARDER，未指定格式时只识别 QR 码和商品条码，大区域优先解码缩小 4 倍的图像
+     */
+    public static final DecodeProfile FAST = new DecodeProfile(Intents.Scan.FAST_PROFILE,
+            fastFormats(), false, false, false, false, 4);
+
+    /**
+     * 默认：不加额外提示，识别默认格式
+     */
+    public static final DecodeProfile BALANCED = new DecodeProfile(Intents.Scan.BALANCED_PROFILE,
+            null, false, false, false, false, 4);
+
+    /**
+     * 尽量识别：TRY_HARDER，原图失败后再解码反色图像（深色底浅色码）和旋转 90 度的图像
+     * （竖直的一维码），不缩小
+     */
+    public static final DecodeProfile EXHAUSTIVE = new DecodeProfile(
+            Intents.Scan.EXHAUSTIVE_PROFILE, null, true, false, false, true, true, 1, 1);
+
+    /**
+     * 纯条码图片：PURE_BARCODE，适用于屏幕截图、生成的图片等只有一个端正条码的图像
+     */
+    public static final DecodeProfile PURE = new DecodeProfile(Intents.Scan.PURE_PROFILE,
+            null, false, true, false, false, 1);
+
+    /**
+     * GS1 物流标签：ASSUME_GS1，Code 128 的 FNC1 按 GS1-128 处理
+     */
+    public static final DecodeProfile GS1 = new DecodeProfile(Intents.Scan.GS1_PROFILE,
+            null, false, false, true, false, 4);
+
+    private static final DecodeProfile[] BUILT_IN = {FAST, BALANCED, EXHAUSTIVE, PURE, GS1};
+
+    private final String name;
+    private final Collection<BarcodeFormat> formats;
+    private final boolean tryHarder;
+    private final boolean pureBarcode;
+    private final boolean assumeGs1;
+    private final boolean tryInverted;
+    private final boolean tryRotated;
+    private final int minDownsample;
+    private final int maxDownsample;
+    private final DecodeMetrics metrics = new DecodeMetrics(new String[0]);
+
+    /**
+     * @param formats       调用方未指定格式时识别的格式，为 null 时使用默认格式
+     * @param tryInverted   原图识别失败后是否再解码反色的图像
+     * @param maxDownsample 见 {@link DecodeEngine#setMaxDownsample(int)}
+     */
+    public DecodeProfile(String name, Collection<BarcodeFormat> formats, boolean tryHarder,
+                         boolean pureBarcode, boolean assumeGs1, boolean tryInverted,
+                         int maxDownsample) {
+        this(name, formats, tryHarder, pureBarcode, assumeGs1, tryInverted, false, 1,
+                maxDownsample);
+    }
+
+    /**
+     * @param tryRotated    识别失败后是否再用一维码解码器解码旋转 90 度的原图
+     * @param minDownsample 至少缩小几倍，大于 1 时不解码原图，只用于廉价的预览帧解码，
+     *                      解码区域太小无法缩小时仍解码原图
+     */
+    public DecodeProfile(String name, Collection<BarcodeFormat> formats, boolean tryHarder,
+                         boolean pureBarcode, boolean assumeGs1, boolean tryInverted,
+                         boolean tryRotated, int minDownsample, int maxDownsample) {
+        checkDownsample(minDownsample);
+        checkDownsample(maxDownsample);
+        if (minDownsample > maxDownsample) {
+            throw new IllegalArgumentException("Minimum downsample factor " + minDownsample
+                    + " exceeds maximum " + maxDownsample);
+        }
+        this.name = name;
+        this.formats = formats == null ? null
+                : Collections.unmodifiableCollection(new Vector<BarcodeFormat>(formats));
+        this.tryHarder = tryHarder;
+        this.pureBarcode = pureBarcode;
+        this.assumeGs1 = assumeGs1;
+        this.tryInverted = tryInverted;
+        this.tryRotated = tryRotated;
+        this.minDownsample = minDownsample;
+        this.maxDownsample = maxDownsample;
+    }
+
+    private static void checkDownsample(int factor) {
+        if (factor != 1 && factor != 2 && factor != 4) {
+            throw new IllegalArgumentException("Unsupported downsample factor: " + factor);
+        }
+    }
+
+    static Vector<BarcodeFormat> fastFormats() {
+        Vector<BarcodeFormat> formats = new Vector<BarcodeFormat>();
+        formats.addAll(DecodeFormats.QR_CODE_FORMATS);
+        formats.addAll(DecodeFormats.PRODUCT_FORMATS);
+        return formats;
+    }
+
+    /**
+     * 按名称查找内置配置，如 {@link Intents.Scan#FAST_PROFILE}
+     *
+     * @return 名称为 null 或未知时返回 {@link #BALANCED}
+     */
+    public static DecodeProfile forName(String name) {
+        if (name != null) {
+            for (DecodeProfile profile : BUILT_IN) {
+                if (profile.name.equals(name)) {
+                    return profile;
+                }
+            }
+        }
+        return BALANCED;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 调用方未指定格式时识别的格式，为 null 时使用默认格式
+     */
+    public Collection<BarcodeFormat> getFormats() {
+        return formats;
+    }
+
+    public boolean isTryHarder() {
+        return tryHarder;
+    }
+
+    public boolean isPureBarcode() {
+        return pureBarcode;
+    }
+
+    public boolean isAssumeGs1() {
+        return assumeGs1;
+    }
+
+    public boolean isTryInverted() {
+        return tryInverted;
+    }
+
+    public boolean isTryRotated() {
+        return tryRotated;
+    }
+
+    public int getMinDownsample() {
+        return minDownsample;
+    }
+
+    public int getMaxDownsample() {
+        return maxDownsample;
+    }
+
+    /**
+     * 使用该配置的所有解码累计的每帧解码耗时（decode-total）和成功率
+     */
+    public DecodeMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+}
@@ -20,10 +20,8 @@ import android.os.Handler;
 import android.os.Looper;
 
 import com.google.zxing.BarcodeFormat;
-import com.google.zxing.DecodeHintType;
 import com.google.zxing.ResultPointCallback;
 
-import java.util.Hashtable;
 import java.util.Vector;
 import java.util.concurrent.CountDownLatch;
 
@@ -32,52 +30,69 @@ import java.util.concurrent.CountDownLatch;
  */
 public final class DecodeThread extends Thread {
 
+    /**
+     * @deprecated 识别结果的 Bundle 中不再有位图，改为灰度数据，用 {@link BarcodeThumbnail} 读取
+     */
+    @Deprecated
     public static final String BARCODE_BITMAP = "barcode_bitmap";
     private final CaptureActivity activity;
-    private final Hashtable<DecodeHintType, Object> hints;
+    private final int index;
+    /**
+     * 本线程独占的解码引擎，在构造时创建，之后只在本线程中使用
+     */
+    private final DecodeEngine engine;
     private final CountDownLatch handlerInitLatch;
     private Handler handler;
+    /**
+     * 调用 start() 的时间，用于追踪线程启动到 Handler 就绪的耗时
+     */
+    private long startNanos;
 
     public DecodeThread(CaptureActivity activity,
+                        int index,
                         Vector<BarcodeFormat> decodeFormats,
+                        DecodeFormatScheduler scheduler,
+                        FramePreFilter preFilter,
+                        DecodeMetrics metrics,
+                        DecodeProfile profile,
+                        DecodeEscalation escalation,
                         String characterSet,
                         ResultPointCallback resultPointCallback) {
 
         this.activity = activity;
+        this.index = index;
         handlerInitLatch = new CountDownLatch(1);
-
-        hints = new Hashtable<DecodeHintType, Object>(3);
-
-        if (decodeFormats == null || decodeFormats.isEmpty()) {
-            decodeFormats = new Vector<BarcodeFormat>();
-            decodeFormats.addAll(DecodeFormatManager.ONE_D_FORMATS);
-            decodeFormats.addAll(DecodeFormatManager.QR_CODE_FORMATS);
-            decodeFormats.addAll(DecodeFormatManager.DATA_MATRIX_FORMATS);
-        }
-
-        hints.put(DecodeHintType.POSSIBLE_FORMATS, decodeFormats);
-
-        if (characterSet != null) {
-            hints.put(DecodeHintType.CHARACTER_SET, characterSet);
-        }
-
-        hints.put(DecodeHintType.NEED_RESULT_POINT_CALLBACK, resultPointCallback);
+        engine = new DecodeEngine(decodeFormats, characterSet, resultPointCallback,
+                scheduler, preFilter, metrics, profile);
+        engine.setEscalation(escalation);
     }
 
     Handler getHandler() {
-        try {
-            handlerInitLatch.await();
-        } catch (InterruptedException ie) {
-            // continue?
+        if (handlerInitLatch.getCount() > 0) {
+            long begin = ScanTrace.begin();
+            try {
+                handlerInitLatch.await();
+            } catch (InterruptedException ie) {
+                // continue?
+            }
+            ScanTrace.end("DecodeThread.awaitHandler", begin);
         }
         return handler;
     }
 
+    @Override
+    public synchronized void start() {
+        startNanos = ScanTrace.begin();
+        super.start();
+    }
+
     @Override
     public void run() {
         Looper.prepare();
-        handler = new DecodeHandler(activity, hints);
+        setName("DecodeThread-" + index);
+        handler = new DecodeHandler(activity, index, engine);
         handlerInitLatch.countDown();
+        ScanTrace.end("DecodeThread.startup", startNanos);
         Looper.loop();
     }
 
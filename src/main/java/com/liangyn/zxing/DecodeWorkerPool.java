@@ -0,0 +1,156 @@
+package com.liangyn.zxing;
+
+import android.os.Message;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.ResultPointCallback;
+
+import java.util.List;
+import java.util.Vector;
+
+/**
+ * 解码线程池：由多个 DecodeThread 组成，每个线程持有自己的 MultiFormatReader
+ * 说明：预览帧交给空闲的解码线程，多个线程并行解码不同的帧；
+ * 只在主线程（CaptureActivityHandler）中调用，无需同步。
+ */
+final class DecodeWorkerPool {
+
+    private final DecodeThread[] workers;
+    private final boolean[] busy;
+    /**
+     * 每个解码线程正在处理的帧
+     */
+    private final byte[][] frames;
+    /**
+     * 各线程正在处理的帧到达主线程的时间
+     */
+    private final long[] arrivals;
+    private final FramePreFilter preFilter = new FramePreFilter();
+    private final DecodeMetrics metrics;
+    /**
+     * 发给解码线程的消息：单码模式 scan_decode，多码模式 scan_decode_multiple
+     */
+    private final int decodeMessage;
+
+    /**
+     * @param multiple 是否识别每帧中的所有条码
+     */
+    DecodeWorkerPool(CaptureActivity activity, int workerCount,
+                     Vector<BarcodeFormat> decodeFormats, String characterSet,
+                     DecodeProfile profile, DecodeEscalation escalation,
+                     ResultPointCallback resultPointCallback, boolean multiple) {
+        decodeMessage = multiple ? R.id.scan_decode_multiple : R.id.scan_decode;
+        if (workerCount < 1) {
+            workerCount = 1;
+        }
+        decodeFormats = new Vector<BarcodeFormat>(
+                DecodeEngine.resolveFormats(decodeFormats, profile));
+        // 所有解码线程共享同一份格式命中历史和性能统计
+        List<Vector<BarcodeFormat>> groups = DecodeFormats.splitFormatGroups(decodeFormats);
+        DecodeFormatScheduler scheduler = new DecodeFormatScheduler(groups.size());
+        metrics = new DecodeMetrics(DecodeFormats.formatGroupNames(groups));
+        workers = new DecodeThread[workerCount];
+        busy = new boolean[workerCount];
+        frames = new byte[workerCount][];
+        arrivals = new long[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            workers[i] = new DecodeThread(activity, i, decodeFormats, scheduler,
+                    preFilter, metrics, profile, escalation, characterSet, resultPointCallback);
+        }
+    }
+
+    /**
+     * 见 {@link DecodeEngine#defaultThreadCount()}
+     */
+    static int defaultWorkerCount() {
+        return DecodeEngine.defaultThreadCount();
+    }
+
+    void start() {
+        for (DecodeThread worker : workers) {
+            worker.start();
+        }
+    }
+
+    /**
+     * 解码前快速筛选的统计
+     */
+    FramePreFilter getPreFilter() {
+        return preFilter;
+    }
+
+    DecodeMetrics getMetrics() {
+        return metrics;
+    }
+
+    int size() {
+        return workers.length;
+    }
+
+    boolean hasIdleWorker() {
+        for (boolean b : busy) {
+            if (!b) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 将一帧交给空闲的解码线程
+     *
+     * @param arrivalNanos 该帧到达主线程的时间（System.nanoTime()），用于统计帧延迟
+     * @return 没有空闲线程时返回 false，该帧被丢弃
+     */
+    boolean dispatch(byte[] data, int width, int height, long arrivalNanos) {
+        for (int i = 0; i < workers.length; i++) {
+            if (!busy[i]) {
+                busy[i] = true;
+                frames[i] = data;
+                arrivals[i] = arrivalNanos;
+                Message message = workers[i].getHandler().obtainMessage(
+                        decodeMessage, width, height, data);
+                message.sendToTarget();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 解码线程完成一帧（成功或失败）后调用
+     *
+     * @param worker DecodeHandler 回传的线程序号
+     * @return 该线程处理完的帧数据，可归还给相机复用
+     */
+    byte[] onWorkerIdle(int worker) {
+        if (worker < 0 || worker >= busy.length) {
+            return null;
+        }
+        byte[] data = frames[worker];
+        if (busy[worker]) {
+            metrics.recordStage(DecodeMetrics.STAGE_FRAME_LATENCY,
+                    System.nanoTime() - arrivals[worker]);
+        }
+        busy[worker] = false;
+        frames[worker] = null;
+        return data;
+    }
+
+    void quitSynchronously() {
+        for (DecodeThread worker : workers) {
+            Message.obtain(worker.getHandler(), R.id.scan_quit).sendToTarget();
+        }
+        for (DecodeThread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+            }
+        }
+        for (int i = 0; i < busy.length; i++) {
+            busy[i] = false;
+            frames[i] = null;
+        }
+    }
+
+}
@@ -0,0 +1,41 @@
+package com.liangyn.zxing;
+
+/**
+ * 解码线程私有的帧缓冲池
+ * 说明：按数组长度缓存 byte[]，稳定预览时每帧复用同一块内存，避免每帧分配大数组导致 GC 卡顿。
+ * 注：非线程安全，只能在所属的解码线程中使用；取出的数组在下一次取同样长度的数组前有效。
+ */
+final class FrameBufferPool {
+
+    /**
+     * 预览尺寸通常固定，保留少量不同长度的缓冲即可：
+     * 完整解码区域、跟踪区域，以及各自缩小 2 倍、4 倍的灰度图
+     */
+    private static final int MAX_BUFFERS = 6;
+
+    private final byte[][] buffers = new byte[MAX_BUFFERS][];
+    private int next;
+
+    /**
+     * 获取长度恰好为 size 的缓冲数组，内容未清零
+     */
+    byte[] obtain(int size) {
+        for (byte[] buffer : buffers) {
+            if (buffer != null && buffer.length == size) {
+                return buffer;
+            }
+        }
+        byte[] buffer = new byte[size];
+        buffers[next] = buffer;
+        next = (next + 1) % MAX_BUFFERS;
+        return buffer;
+    }
+
+    void clear() {
+        for (int i = 0; i < MAX_BUFFERS; i++) {
+            buffers[i] = null;
+        }
+        next = 0;
+    }
+
+}
@@ -0,0 +1,166 @@
+package com.liangyn.zxing;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 解码前的快速筛选：在未旋转的 Y 平面上抽样扫描框区域，
+ * 对比度过低（空白、纯色）的帧直接跳过；有明暗变化但几乎没有清晰边缘，
+ * 或清晰度（拉普拉斯方差）过低的失焦、模糊帧也跳过并提示重新对焦，
+ * 不再做旋转、二值化和逐个解码器的尝试。
+ * 说明：只做抽样统计，不分配内存，可被多个解码线程共用。判定偏保守，宁可放过也不误杀。
+ */
+final class FramePreFilter {
+
+    /**
+     * 可以解码
+     */
+    static final int FRAME_OK = 0;
+
+    /**
+     * 没有类似条码的内容
+     */
+    static final int FRAME_NO_CONTENT = 1;
+
+    /**
+     * 有内容但失焦模糊，需要重新对焦
+     */
+    static final int FRAME_BLURRY = 2;
+
+    /**
+     * 每隔多少行（列）抽样一行（列）
+     */
+    private static final int SAMPLE_LINE_STEP = 8;
+
+    /**
+     * 抽样点中最亮与最暗的亮度差至少为多少
+     */
+    private static final int MIN_CONTRAST = 32;
+
+    /**
+     * 相邻像素亮度差超过该值视为一个边缘
+     */
+    private static final int EDGE_THRESHOLD = 24;
+
+    /**
+     * 边缘数占抽样点数的最小比例（1/n）
+     */
+    private static final int MIN_EDGE_RATIO = 100;
+
+    /**
+     * 拉普拉斯方差低于该值视为失焦
+     */
+    private static final int MIN_SHARPNESS = 50;
+
+    /**
+     * 连续多少帧失焦后放行一帧去解码，避免阈值不合适时永远无法识别
+     */
+    private static final int BLURRY_PASS_INTERVAL = 8;
+
+    private final AtomicLong passedFrames = new AtomicLong();
+    private final AtomicLong rejectedFrames = new AtomicLong();
+    private final AtomicLong blurryFrames = new AtomicLong();
+    private final AtomicInteger consecutiveBlurry = new AtomicInteger();
+
+    /**
+     * 判断区域内是否可能有条码
+     *
+     * @param yuvData   未旋转的预览数据，Y 平面在前
+     * @param dataWidth 未旋转的宽度
+     * @param left      区域在未旋转图像中的左边界
+     * @param top       区域在未旋转图像中的上边界
+     * @param width     区域宽度
+     * @param height    区域高度
+     * @return {@link #FRAME_OK}、{@link #FRAME_NO_CONTENT} 或 {@link #FRAME_BLURRY}
+     */
+    int check(byte[] yuvData, int dataWidth, int left, int top,
+              int width, int height) {
+        int min = 0xFF;
+        int max = 0;
+        int samples = 0;
+        int edges = 0;
+        int laplacianSamples = 0;
+        long laplacianSum = 0;
+        long laplacianSquareSum = 0;
+
+        // 横向抽样：每隔若干行取一行，比较每一对相邻像素（隔点取样会漏掉周期性的条纹边缘）
+        for (int y = 0; y < height; y += SAMPLE_LINE_STEP) {
+            int offset = (top + y) * dataWidth + left;
+            for (int x = 0; x + 1 < width; x++) {
+                int a = yuvData[offset + x] & 0xFF;
+                int b = yuvData[offset + x + 1] & 0xFF;
+                if (a < min) {
+                    min = a;
+                }
+                if (a > max) {
+                    max = a;
+                }
+                if (Math.abs(a - b) > EDGE_THRESHOLD) {
+                    edges++;
+                }
+                samples++;
+                if (x > 0 && y > 0 && y + 1 < height) {
+                    int p = offset + x;
+                    int laplacian = 4 * a - (yuvData[p - 1] & 0xFF) - b
+                            - (yuvData[p - dataWidth] & 0xFF)
+                            - (yuvData[p + dataWidth] & 0xFF);
+                    laplacianSum += laplacian;
+                    laplacianSquareSum += laplacian * laplacian;
+                    laplacianSamples++;
+                }
+            }
+        }
+        // 纵向抽样：条码方向不确定，两个方向的边缘都要统计
+        for (int x = 0; x < width; x += SAMPLE_LINE_STEP) {
+            int offset = top * dataWidth + left + x;
+            for (int y = 0; y + 1 < height; y++) {
+                int a = yuvData[offset] & 0xFF;
+                int b = yuvData[offset + dataWidth] & 0xFF;
+                if (Math.abs(a - b) > EDGE_THRESHOLD) {
+                    edges++;
+                }
+                samples++;
+                offset += dataWidth;
+            }
+        }
+
+        if (max - min < MIN_CONTRAST) {
+            rejectedFrames.incrementAndGet();
+            return FRAME_NO_CONTENT;
+        }
+        // 有明暗变化却没有清晰的边缘，多半是失焦
+        boolean blurry = edges * MIN_EDGE_RATIO < samples;
+        if (!blurry && laplacianSamples > 0) {
+            long mean = laplacianSum / laplacianSamples;
+            long variance = laplacianSquareSum / laplacianSamples - mean * mean;
+            blurry = variance < MIN_SHARPNESS;
+        }
+        if (blurry && consecutiveBlurry.incrementAndGet() % BLURRY_PASS_INTERVAL != 0) {
+            blurryFrames.incrementAndGet();
+            return FRAME_BLURRY;
+        }
+        consecutiveBlurry.set(0);
+        passedFrames.incrementAndGet();
+        return FRAME_OK;
+    }
+
+    long getPassedFrames() {
+        return passedFrames.get();
+    }
+
+    long getRejectedFrames() {
+        return rejectedFrames.get();
+    }
+
+    long getBlurryFrames() {
+        return blurryFrames.get();
+    }
+
+    void reset() {
+        passedFrames.set(0);
+        rejectedFrames.set(0);
+        blurryFrames.set(0);
+        consecutiveBlurry.set(0);
+    }
+
+}
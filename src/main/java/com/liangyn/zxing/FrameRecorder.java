@@ -0,0 +1,179 @@
+package com.liangyn.zxing;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 录制相机送出的原始预览帧，用于复现现场的性能问题，文件格式见 {@link FrameRecording}
+ * 说明：预览线程只把帧复制到预分配的直接缓冲区，由单独的线程通过 FileChannel 写入文件；
+ * 写入跟不上、没有空闲缓冲区时直接丢弃该帧，不阻塞预览线程。
+ */
+public final class FrameRecorder implements Closeable {
+
+    /**
+     * 默认最多缓存多少帧等待写入
+     */
+    public static final int DEFAULT_BUFFER_COUNT = 4;
+
+    /**
+     * 通知写入线程退出
+     */
+    private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+    private final FileChannel channel;
+    private final int maxBuffers;
+    private int allocatedBuffers;
+    private final ConcurrentLinkedQueue<ByteBuffer> freeBuffers = new ConcurrentLinkedQueue<ByteBuffer>();
+    private final BlockingQueue<ByteBuffer> pending = new LinkedBlockingQueue<ByteBuffer>();
+    private final Thread writer;
+    private volatile boolean closed;
+    private volatile IOException writeError;
+
+    private final AtomicLong framesRecorded = new AtomicLong();
+    private final AtomicLong framesDropped = new AtomicLong();
+
+    public FrameRecorder(File file) throws IOException {
+        this(file, DEFAULT_BUFFER_COUNT);
+    }
+
+    /**
+     * 打开录制文件：文件不存在或为空时写入文件头，已有录制时在其后追加
+     * 说明：扫描界面每次 onResume 都会重新创建录制，追加才不会覆盖之前录下的帧；
+     * 上次录制被中断留下的不完整的帧先截掉，新的帧紧接在最后一个完整的帧之后。
+     *
+     * @param bufferCount 最多缓存多少帧等待写入
+     * @throws IOException 文件已存在但不是录制文件
+     */
+    public FrameRecorder(File file, int bufferCount) throws IOException {
+        maxBuffers = Math.max(1, bufferCount);
+        channel = new RandomAccessFile(file, "rw").getChannel();
+        try {
+            if (channel.size() == 0) {
+                ByteBuffer header = ByteBuffer.allocate(FrameRecording.FILE_HEADER_SIZE);
+                header.putInt(FrameRecording.MAGIC).putInt(FrameRecording.VERSION).flip();
+                writeFully(header);
+            } else {
+                long end = FrameRecording.completeLength(channel, file);
+                channel.truncate(end);
+                channel.position(end);
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                writeLoop();
+            }
+        }, "FrameRecorder");
+        writer.start();
+    }
+
+    /**
+     * 录制一帧，在预览线程中调用
+     *
+     * @param timestampNanos 帧到达的时间，System.nanoTime()
+     * @param cropLeft       解码区域，坐标为旋转后的图像坐标
+     * @return 被丢弃（没有空闲缓冲区或已关闭）时返回 false
+     */
+    public boolean record(byte[] data, int width, int height, int format, long timestampNanos,
+                          int cropLeft, int cropTop, int cropWidth, int cropHeight) {
+        if (closed) {
+            return false;
+        }
+        int size = FrameRecording.FRAME_HEADER_SIZE + data.length;
+        ByteBuffer buffer = freeBuffers.poll();
+        if (buffer == null || buffer.capacity() < size) {
+            if (buffer == null && allocatedBuffers == maxBuffers) {
+                framesDropped.incrementAndGet();
+                return false;
+            }
+            if (buffer == null) {
+                allocatedBuffers++;
+            }
+            buffer = ByteBuffer.allocateDirect(size);
+        }
+        buffer.clear();
+        buffer.putInt(width).putInt(height).putInt(format).putLong(timestampNanos)
+                .putInt(cropLeft).putInt(cropTop).putInt(cropWidth).putInt(cropHeight)
+                .putInt(data.length).put(data).flip();
+        pending.add(buffer);
+        return true;
+    }
+
+    /**
+     * 已写入文件的帧数
+     */
+    public long getFramesRecorded() {
+        return framesRecorded.get();
+    }
+
+    /**
+     * 因写入跟不上而丢弃的帧数
+     */
+    public long getFramesDropped() {
+        return framesDropped.get();
+    }
+
+    /**
+     * 写完已缓存的帧后关闭文件
+     *
+     * @throws IOException 写入过程中发生的错误
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        pending.add(END);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+        if (writeError != null) {
+            throw writeError;
+        }
+    }
+
+    private void writeLoop() {
+        try {
+            while (true) {
+                ByteBuffer buffer = pending.take();
+                if (buffer == END) {
+                    return;
+                }
+                if (writeError == null) {
+                    try {
+                        writeFully(buffer);
+                        framesRecorded.incrementAndGet();
+                    } catch (IOException e) {
+                        // 之后的帧不再写入，关闭时抛出
+                        writeError = e;
+                    }
+                }
+                freeBuffers.add(buffer);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+}
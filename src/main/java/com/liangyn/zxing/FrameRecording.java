@@ -0,0 +1,230 @@
+package com.liangyn.zxing;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 读取 {@link FrameRecorder} 录制的预览帧文件
+ * 说明：依次读取帧头，每帧的数据单独内存映射为只读缓冲区，不复制到堆中，文件大小不受 2GB 限制；
+ * 可直接交给 {@link DecodeEngine#decode(ByteBuffer, int, int, int, int, int, int, int)} 解码，
+ * 或通过 {@link ReplayFrameSource#fromRecording} 按帧率回放。
+ * <p>
+ * 文件格式（大端）：文件头 MAGIC、VERSION 各 4 字节，之后每帧一个 FRAME_HEADER_SIZE 字节的帧头
+ * （宽、高、格式、时间戳 8 字节、解码区域左上宽高、数据长度）紧跟帧数据。
+ */
+public final class FrameRecording {
+
+    /**
+     * 文件头："NV21"
+     */
+    static final int MAGIC = 0x4E563231;
+    static final int VERSION = 1;
+    static final int FILE_HEADER_SIZE = 8;
+    static final int FRAME_HEADER_SIZE = 40;
+
+    private final List<Frame> frames;
+
+    private FrameRecording(List<Frame> frames) {
+        this.frames = frames;
+    }
+
+    /**
+     * 解析录制文件并映射各帧的数据，末尾不完整的帧（录制被中断）被忽略
+     *
+     * @throws IOException 不是录制文件
+     */
+    public static FrameRecording open(File file) throws IOException {
+        List<Frame> frames = new ArrayList<Frame>();
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            scan(raf.getChannel(), file, frames);
+        } finally {
+            raf.close();
+        }
+        return new FrameRecording(Collections.unmodifiableList(frames));
+    }
+
+    /**
+     * 最后一个完整的帧之后的位置，FrameRecorder 从这里继续追加
+     *
+     * @throws IOException 不是录制文件
+     */
+    static long completeLength(FileChannel channel, File file) throws IOException {
+        return scan(channel, file, null);
+    }
+
+    /**
+     * 检查文件头并依次读取帧头，frames 不为 null 时映射各帧的数据
+     *
+     * @return 最后一个完整的帧之后的位置
+     */
+    private static long scan(FileChannel channel, File file, List<Frame> frames)
+            throws IOException {
+        long length = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER_SIZE);
+        header.limit(FILE_HEADER_SIZE);
+        if (!readFully(channel, header, 0) || header.getInt(0) != MAGIC) {
+            throw new IOException("Not a frame recording: " + file);
+        }
+        int version = header.getInt(4);
+        if (version != VERSION) {
+            throw new IOException("Unsupported frame recording version: " + version);
+        }
+
+        long position = FILE_HEADER_SIZE;
+        while (position + FRAME_HEADER_SIZE <= length) {
+            header.clear();
+            if (!readFully(channel, header, position)) {
+                break;
+            }
+            header.flip();
+            int width = header.getInt();
+            int height = header.getInt();
+            int format = header.getInt();
+            long timestampNanos = header.getLong();
+            int cropLeft = header.getInt();
+            int cropTop = header.getInt();
+            int cropWidth = header.getInt();
+            int cropHeight = header.getInt();
+            int dataLength = header.getInt();
+            long dataPosition = position + FRAME_HEADER_SIZE;
+            if (dataLength < 0 || dataLength > length - dataPosition) {
+                break;
+            }
+            if (frames != null) {
+                // 映射在通道关闭后仍然有效
+                ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, dataPosition,
+                        dataLength);
+                frames.add(new Frame(width, height, format, timestampNanos, cropLeft, cropTop,
+                        cropWidth, cropHeight, data.asReadOnlyBuffer()));
+            }
+            position = dataPosition + dataLength;
+        }
+        return position;
+    }
+
+    /**
+     * 从 position 开始读满 buffer
+     *
+     * @return 文件在读满之前结束时返回 false
+     */
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer, long position)
+            throws IOException {
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position);
+            if (n < 0) {
+                return false;
+            }
+            position += n;
+        }
+        return true;
+    }
+
+    /**
+     * 文件是否以录制文件头开始
+     */
+    public static boolean isRecording(File file) {
+        try {
+            RandomAccessFile raf = new RandomAccessFile(file, "r");
+            try {
+                return raf.length() >= FILE_HEADER_SIZE && raf.readInt() == MAGIC;
+            } finally {
+                raf.close();
+            }
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 按录制顺序排列的帧
+     */
+    public List<Frame> getFrames() {
+        return frames;
+    }
+
+    /**
+     * 录制的一帧
+     */
+    public static final class Frame {
+
+        private final int width;
+        private final int height;
+        private final int format;
+        private final long timestampNanos;
+        private final int cropLeft;
+        private final int cropTop;
+        private final int cropWidth;
+        private final int cropHeight;
+        private final ByteBuffer data;
+
+        Frame(int width, int height, int format, long timestampNanos, int cropLeft, int cropTop,
+              int cropWidth, int cropHeight, ByteBuffer data) {
+            this.width = width;
+            this.height = height;
+            this.format = format;
+            this.timestampNanos = timestampNanos;
+            this.cropLeft = cropLeft;
+            this.cropTop = cropTop;
+            this.cropWidth = cropWidth;
+            this.cropHeight = cropHeight;
+            this.data = data;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        /**
+         * 预览格式，取值同 android.graphics.ImageFormat
+         */
+        public int getFormat() {
+            return format;
+        }
+
+        /**
+         * 帧到达时的 System.nanoTime()，只用于计算帧间隔
+         */
+        public long getTimestampNanos() {
+            return timestampNanos;
+        }
+
+        /**
+         * 录制时的解码区域，坐标为旋转后（竖屏预览）的图像坐标
+         */
+        public int getCropLeft() {
+            return cropLeft;
+        }
+
+        public int getCropTop() {
+            return cropTop;
+        }
+
+        public int getCropWidth() {
+            return cropWidth;
+        }
+
+        public int getCropHeight() {
+            return cropHeight;
+        }
+
+        /**
+         * 帧数据的只读视图，每次返回独立的 position/limit
+         */
+        public ByteBuffer getData() {
+            return data.duplicate();
+        }
+
+    }
+
+}
@@ -0,0 +1,471 @@
+package com.liangyn.zxing;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.Result;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Vector;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 在普通 JVM 中用 {@link ReplayFrameSource} 驱动解码流程，测量持续吞吐、丢帧和延迟
+ * 说明：调度方式与 {@link CaptureActivityHandler} + {@link DecodeWorkerPool} 相同：
+ * 每个解码线程持有自己的 {@link DecodeEngine}，共享格式调度和性能统计；
+ * 解码线程都在忙时只保留最新的一帧，过时的帧直接归还。不依赖 Android。
+ * 与设备相同，默认把帧旋转 90 度后只解码扫描框区域，扫描框按 {@link CameraManager} 的方式
+ * 由屏幕尺寸和密度换算，见 {@link #setScreen}、{@link #setCrop}。
+ * <p>
+ * 命令行：FrameReplayDriver &lt;帧目录或帧文件&gt; &lt;宽&gt; &lt;高&gt; [fps] [线程数] [秒数]，
+ * 或 FrameReplayDriver &lt;录制文件&gt; [fps] [线程数] [秒数]，录制文件见 {@link FrameRecorder}，
+ * 其 fps 省略或为 0 时按录制时的帧间隔回放；
+ * 系统属性 profile 指定解码配置的名称，见 {@link Intents.Scan#PROFILE}；系统属性 escalate
+ * 为连续失败多少帧后加码，见 {@link Intents.Scan#ESCALATE_AFTER}；系统属性 crop 为
+ * "左,上,宽,高" 或 "full"（整帧），screen 为 "宽x高"，density 为屏幕密度
+ */
+public final class FrameReplayDriver {
+
+    private static final float DEFAULT_FPS = 30f;
+    private static final int DEFAULT_SECONDS = 10;
+    /**
+     * 不循环回放时等待事件的间隔，用于检查回放是否结束
+     */
+    private static final long POLL_MILLIS = 20;
+    /**
+     * 默认按 1080x1920、xxhdpi 的竖屏换算扫描框
+     */
+    private static final int DEFAULT_SCREEN_WIDTH = 1080;
+    private static final int DEFAULT_SCREEN_HEIGHT = 1920;
+    private static final float DEFAULT_DENSITY = 3f;
+    /**
+     * 扫描框的尺寸（dp），同 CameraManager.FRAME_WIDTH_DIP、FRAME_HEIGHT_DIP；
+     * CameraManager 依赖 Android，这里不直接引用
+     */
+    private static final int FRAME_WIDTH_DIP = 280;
+    private static final int FRAME_HEIGHT_DIP = 120;
+
+    private final Collection<BarcodeFormat> decodeFormats;
+    private final String characterSet;
+    private final int workerCount;
+    private int rotation = 90;
+    /**
+     * 指定的解码区域（左、上、宽、高），为 null 时使用扫描框
+     */
+    private int[] crop;
+    private int screenWidth = DEFAULT_SCREEN_WIDTH;
+    private int screenHeight = DEFAULT_SCREEN_HEIGHT;
+    private float density = DEFAULT_DENSITY;
+    private DecodeProfile profile = DecodeProfile.BALANCED;
+    private DecodeEscalation escalation;
+
+    /**
+     * @param decodeFormats 要识别的格式，为 null 时使用解码配置的格式
+     * @param workerCount   解码线程数
+     */
+    public FrameReplayDriver(Collection<BarcodeFormat> decodeFormats, String characterSet,
+                             int workerCount) {
+        this.decodeFormats = decodeFormats;
+        this.characterSet = characterSet;
+        this.workerCount = Math.max(1, workerCount);
+    }
+
+    /**
+     * 解码前将帧顺时针旋转的角度，默认 90，与竖屏预览相同
+     */
+    public void setRotation(int rotation) {
+        this.rotation = rotation;
+    }
+
+    /**
+     * 解码区域，坐标为旋转后的图像坐标，整帧解码时传入 (0, 0, 旋转后的宽, 高)；
+     * 默认使用录制时的解码区域，不是录制文件时使用扫描框
+     */
+    public void setCrop(int left, int top, int width, int height) {
+        crop = new int[]{left, top, width, height};
+    }
+
+    /**
+     * 换算默认扫描框所用的竖屏尺寸（像素）和密度，默认 1080x1920、3.0
+     */
+    public void setScreen(int width, int height, float density) {
+        screenWidth = width;
+        screenHeight = height;
+        this.density = density;
+    }
+
+    /**
+     * 设备上解码的扫描框：屏幕居中的 280dp x 120dp，按屏幕与旋转后的帧
+     * 的比例换算到帧中，同 CameraManager.getFrameRectInPreview
+     *
+     * @return 左、上、宽、高，坐标为旋转后的图像坐标
+     */
+    static int[] viewfinderCrop(int rotatedWidth, int rotatedHeight, int screenWidth,
+                                int screenHeight, float density) {
+        int width = Math.min((int) (FRAME_WIDTH_DIP * density + 0.5f), screenWidth);
+        int height = Math.min((int) (FRAME_HEIGHT_DIP * density + 0.5f), screenHeight);
+        int left = (screenWidth - width) / 2;
+        int top = (screenHeight - height) / 2;
+        int right = (left + width) * rotatedWidth / screenWidth;
+        int bottom = (top + height) * rotatedHeight / screenHeight;
+        left = left * rotatedWidth / screenWidth;
+        top = top * rotatedHeight / screenHeight;
+        return new int[]{left, top, right - left, bottom - top};
+    }
+
+    /**
+     * 解码配置，默认 {@link DecodeProfile#BALANCED}
+     */
+    public void setProfile(DecodeProfile profile) {
+        this.profile = profile;
+    }
+
+    /**
+     * 逐级加码的策略，不为 null 时代替解码配置，默认 null
+     */
+    public void setEscalation(DecodeEscalation escalation) {
+        this.escalation = escalation;
+    }
+
+    /**
+     * 以连续模式回放，解码扫描框或 setCrop 指定的区域
+     *
+     * @param durationMillis 运行时长；不大于 0 时一直运行到回放结束（需 setLoop(false)）
+     */
+    public Report run(ReplayFrameSource source, long durationMillis) throws InterruptedException {
+        Collection<BarcodeFormat> formats = DecodeEngine.resolveFormats(decodeFormats, profile);
+        List<Vector<BarcodeFormat>> groups = DecodeFormats.splitFormatGroups(formats);
+        DecodeFormatScheduler scheduler = new DecodeFormatScheduler(groups.size());
+        FramePreFilter preFilter = new FramePreFilter();
+        DecodeMetrics metrics = new DecodeMetrics(DecodeFormats.formatGroupNames(groups));
+        int[] frameCrop = crop != null ? crop : viewfinderCrop(
+                rotation % 180 == 0 ? source.getWidth() : source.getHeight(),
+                rotation % 180 == 0 ? source.getHeight() : source.getWidth(),
+                screenWidth, screenHeight, density);
+        if (!fits(frameCrop, source.getWidth(), source.getHeight(), rotation)) {
+            throw new IllegalArgumentException("Crop rectangle does not fit within "
+                    + source.getWidth() + "x" + source.getHeight() + " rotated by " + rotation);
+        }
+
+        final BlockingQueue<Object> events = new LinkedBlockingQueue<Object>();
+        Worker[] workers = new Worker[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            DecodeEngine engine = new DecodeEngine(formats, characterSet, null,
+                    scheduler, preFilter, metrics, profile);
+            engine.setEscalation(escalation);
+            workers[i] = new Worker(i, engine, frameCrop, crop == null, events);
+            workers[i].start();
+        }
+
+        long startNanos = System.nanoTime();
+        long deadline = durationMillis > 0
+                ? startNanos + TimeUnit.MILLISECONDS.toNanos(durationMillis) : Long.MAX_VALUE;
+        // 解码线程各持有一帧，另留两个缓冲区给回放写入和等待中的最新帧
+        source.start(new FrameSource.Callback() {
+            @Override
+            public void onFrame(byte[] data, int width, int height, long timestampNanos,
+                                int[] crop) {
+                events.add(new Frame(data, width, height, crop, System.nanoTime()));
+            }
+        }, workerCount + 2);
+
+        Frame pending = null;
+        long lastArrival = 0L;
+        int busy = 0;
+        long succeeded = 0;
+        try {
+            while (System.nanoTime() < deadline) {
+                Object event = events.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (event == null) {
+                    if (source.isFinished() && busy == 0 && pending == null) {
+                        break;
+                    }
+                } else if (event instanceof Frame) {
+                    Frame frame = (Frame) event;
+                    metrics.onFrameReceived();
+                    if (lastArrival != 0L) {
+                        metrics.recordStage(DecodeMetrics.STAGE_FRAME_INTERVAL,
+                                frame.arrivalNanos - lastArrival);
+                    }
+                    lastArrival = frame.arrivalNanos;
+                    Worker idle = findIdle(workers);
+                    if (idle != null) {
+                        idle.dispatch(frame);
+                        busy++;
+                    } else {
+                        if (pending != null) {
+                            metrics.onFrameDropped();
+                            source.releaseFrame(pending.data);
+                        }
+                        pending = frame;
+                    }
+                } else {
+                    Done done = (Done) event;
+                    Worker worker = workers[done.worker];
+                    if (done.error != null) {
+                        throw new IllegalStateException("Decode failed on " + worker.getName()
+                                + " for a " + worker.frame.width + "x" + worker.frame.height
+                                + " frame", done.error);
+                    }
+                    metrics.recordStage(DecodeMetrics.STAGE_FRAME_LATENCY,
+                            System.nanoTime() - worker.frame.arrivalNanos);
+                    source.releaseFrame(worker.frame.data);
+                    worker.frame = null;
+                    busy--;
+                    if (done.result != null) {
+                        succeeded++;
+                    }
+                    if (pending != null) {
+                        worker.dispatch(pending);
+                        busy++;
+                        pending = null;
+                    }
+                }
+            }
+        } finally {
+            source.stop();
+            for (Worker worker : workers) {
+                worker.interrupt();
+            }
+            for (Worker worker : workers) {
+                worker.join();
+            }
+        }
+        return new Report(System.nanoTime() - startNanos, source.getFramesDelivered(),
+                source.getFramesDropped(), succeeded, metrics.snapshot());
+    }
+
+    /**
+     * 解码区域（旋转后的图像坐标）是否在帧内
+     */
+    private static boolean fits(int[] rect, int width, int height, int rotation) {
+        int rotatedWidth = rotation % 180 == 0 ? width : height;
+        int rotatedHeight = rotation % 180 == 0 ? height : width;
+        return rect[0] >= 0 && rect[1] >= 0 && rect[2] > 0 && rect[3] > 0
+                && rect[0] + rect[2] <= rotatedWidth && rect[1] + rect[3] <= rotatedHeight;
+    }
+
+    private static Worker findIdle(Worker[] workers) {
+        for (Worker worker : workers) {
+            if (worker.frame == null) {
+                return worker;
+            }
+        }
+        return null;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        File input = args.length > 0 ? new File(args[0]) : null;
+        boolean recording = input != null && FrameRecording.isRecording(input);
+        // 录制文件自带帧尺寸，其余参数前移两位
+        int next = recording ? 1 : 3;
+        if (input == null || args.length < next) {
+            System.err.println("Usage: FrameReplayDriver <frame dir or file> <width> <height>"
+                    + " [fps] [threads] [seconds]");
+            System.err.println("       FrameReplayDriver <recording> [fps] [threads] [seconds]");
+            System.exit(1);
+        }
+        float fps = args.length > next ? Float.parseFloat(args[next])
+                : recording ? 0f : DEFAULT_FPS;
+        int threads = args.length > next + 1 ? Integer.parseInt(args[next + 1])
+                : DecodeEngine.defaultThreadCount();
+        int seconds = args.length > next + 2 ? Integer.parseInt(args[next + 2]) : DEFAULT_SECONDS;
+        ReplayFrameSource source;
+        if (recording) {
+            source = ReplayFrameSource.fromRecording(input, fps);
+        } else {
+            int width = Integer.parseInt(args[1]);
+            int height = Integer.parseInt(args[2]);
+            source = input.isDirectory()
+                    ? ReplayFrameSource.fromDirectory(input, width, height, fps)
+                    : ReplayFrameSource.fromFile(input, width, height, fps);
+        }
+        FrameReplayDriver driver = new FrameReplayDriver(null, null, threads);
+        driver.setProfile(DecodeProfile.forName(System.getProperty("profile")));
+        String crop = System.getProperty("crop");
+        if ("full".equals(crop)) {
+            driver.setCrop(0, 0, source.getHeight(), source.getWidth());
+        } else if (crop != null) {
+            String[] values = crop.split(",");
+            driver.setCrop(Integer.parseInt(values[0]), Integer.parseInt(values[1]),
+                    Integer.parseInt(values[2]), Integer.parseInt(values[3]));
+        }
+        String screen = System.getProperty("screen");
+        if (screen != null) {
+            String[] values = screen.split("x");
+            driver.setScreen(Integer.parseInt(values[0]), Integer.parseInt(values[1]),
+                    Float.parseFloat(System.getProperty("density", String.valueOf(DEFAULT_DENSITY))));
+        }
+        int escalateAfter = Integer.getInteger("escalate", 0);
+        if (escalateAfter > 0) {
+            driver.setEscalation(DecodeEscalation.standard(escalateAfter));
+        }
+        Report report = driver.run(source, TimeUnit.SECONDS.toMillis(seconds));
+        System.out.println(report);
+    }
+
+    /**
+     * 一次回放的结果
+     */
+    public static final class Report {
+
+        private final long elapsedNanos;
+        private final long framesDelivered;
+        private final long sourceDropped;
+        private final long framesSucceeded;
+        private final DecodeMetrics.Snapshot metrics;
+
+        Report(long elapsedNanos, long framesDelivered, long sourceDropped, long framesSucceeded,
+               DecodeMetrics.Snapshot metrics) {
+            this.elapsedNanos = elapsedNanos;
+            this.framesDelivered = framesDelivered;
+            this.sourceDropped = sourceDropped;
+            this.framesSucceeded = framesSucceeded;
+            this.metrics = metrics;
+        }
+
+        public long getElapsedMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        }
+
+        /**
+         * 回放送出的帧数
+         */
+        public long getFramesDelivered() {
+            return framesDelivered;
+        }
+
+        /**
+         * 回放时没有空闲缓冲区而丢弃的帧数，相当于相机丢帧
+         */
+        public long getSourceDropped() {
+            return sourceDropped;
+        }
+
+        /**
+         * 识别出条码的帧数
+         */
+        public long getFramesSucceeded() {
+            return framesSucceeded;
+        }
+
+        /**
+         * 每秒解码完成的帧数
+         */
+        public double getDecodedPerSecond() {
+            return elapsedNanos == 0 ? 0
+                    : metrics.getFramesDecoded() * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+        }
+
+        public DecodeMetrics.Snapshot getMetrics() {
+            return metrics;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("elapsed=%dms delivered=%d source-dropped=%d decoded/s=%.1f"
+                            + " succeeded=%d%n%s", getElapsedMillis(), framesDelivered, sourceDropped,
+                    getDecodedPerSecond(), framesSucceeded, metrics);
+        }
+
+    }
+
+    private static final class Frame {
+        final byte[] data;
+        final int width;
+        final int height;
+        /**
+         * 录制时的解码区域，没有时为 null
+         */
+        final int[] crop;
+        final long arrivalNanos;
+
+        Frame(byte[] data, int width, int height, int[] crop, long arrivalNanos) {
+            this.data = data;
+            this.width = width;
+            this.height = height;
+            this.crop = crop;
+            this.arrivalNanos = arrivalNanos;
+        }
+    }
+
+    private static final class Done {
+        final int worker;
+        final Result result;
+        /**
+         * 解码时抛出的异常，正常结束时为 null
+         */
+        final RuntimeException error;
+
+        Done(int worker, Result result, RuntimeException error) {
+            this.worker = worker;
+            this.result = result;
+            this.error = error;
+        }
+    }
+
+    /**
+     * 解码线程，相当于 DecodeThread + DecodeHandler
+     */
+    private final class Worker extends Thread {
+
+        private final int index;
+        private final DecodeEngine engine;
+        private final int[] crop;
+        /**
+         * 帧带有录制时的解码区域时是否用它代替 crop
+         */
+        private final boolean useRecordedCrop;
+        private final BlockingQueue<Object> events;
+        private final SynchronousQueue<Frame> input = new SynchronousQueue<Frame>();
+        /**
+         * 正在解码的帧，只在调度线程中读写
+         */
+        Frame frame;
+
+        Worker(int index, DecodeEngine engine, int[] crop, boolean useRecordedCrop,
+               BlockingQueue<Object> events) {
+            super("DecodeThread-" + index);
+            this.index = index;
+            this.engine = engine;
+            this.crop = crop;
+            this.useRecordedCrop = useRecordedCrop;
+            this.events = events;
+        }
+
+        void dispatch(Frame frame) throws InterruptedException {
+            this.frame = frame;
+            input.put(frame);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    Frame frame = input.take();
+                    int[] rect = crop;
+                    if (useRecordedCrop && frame.crop != null
+                            && fits(frame.crop, frame.width, frame.height, rotation)) {
+                        rect = frame.crop;
+                    }
+                    try {
+                        Result result = engine.decode(frame.data, frame.width, frame.height,
+                                rotation, rect[0], rect[1], rect[2], rect[3]);
+                        events.add(new Done(index, result, null));
+                    } catch (RuntimeException e) {
+                        // 不能让线程悄悄退出，否则调度线程一直等这一帧，回放永远不会结束
+                        events.add(new Done(index, null, e));
+                    }
+                }
+            } catch (InterruptedException e) {
+                engine.clear();
+            }
+        }
+
+    }
+
+}
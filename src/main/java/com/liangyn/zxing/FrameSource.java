@@ -0,0 +1,56 @@
+package com.liangyn.zxing;
+
+/**
+ * 预览帧来源
+ * 说明：默认由 {@link CameraManager} 直接从相机取帧；通过 {@link CameraManager#setFrameSource}
+ * 可换成其他来源（如 {@link ReplayFrameSource} 回放录制好的帧），解码流程不变。
+ * 帧数据为 NV21（或其他 Y 平面在前的格式），尺寸为相机方向、未旋转的宽高。
+ * 不依赖 Android，可在普通 JVM 中使用。
+ */
+public interface FrameSource {
+
+    /**
+     * 帧宽度（像素）
+     */
+    int getWidth();
+
+    /**
+     * 帧高度（像素）
+     */
+    int getHeight();
+
+    /**
+     * 只接收下一帧，之后需再次调用才会继续送帧；帧数据归接收方所有，无需归还
+     */
+    void requestFrame(Callback callback);
+
+    /**
+     * 连续接收预览帧：预分配 bufferCount 个缓冲区轮流填充，
+     * 接收方处理完后必须调用 {@link #releaseFrame(byte[])} 归还，没有空闲缓冲区时新帧被丢弃
+     */
+    void start(Callback callback, int bufferCount);
+
+    /**
+     * 归还 {@link #start(Callback, int)} 送出的帧缓冲区
+     */
+    void releaseFrame(byte[] data);
+
+    /**
+     * 停止送帧，之后不再回调
+     */
+    void stop();
+
+    /**
+     * 接收预览帧，在帧来源的线程中调用，应尽快返回
+     */
+    interface Callback {
+
+        /**
+         * @param timestampNanos 帧的时间（System.nanoTime()），回放录制的帧时为录制时的时间
+         * @param crop           录制时的解码区域（左、上、宽、高，旋转后的图像坐标），没有时为 null
+         */
+        void onFrame(byte[] data, int width, int height, long timestampNanos, int[] crop);
+
+    }
+
+}
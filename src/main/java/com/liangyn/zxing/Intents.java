@@ -79,6 +79,138 @@ public final class Intents {
          */
         public static final String DATA_MATRIX_MODE = "DATA_MATRIX_MODE";
 
+        /**
+         * Number of threads decoding preview frames in parallel, as an int.
+         * Defaults to one less than the number of CPU cores, at most 4.
+         * Optional.
+         */
+        public static final String DECODE_THREADS = "DECODE_THREADS";
+
+        /**
+         * Whether the camera keeps filling a small ring of preview buffers while
+         * frames are being decoded, as a boolean. Only the newest waiting frame
+         * is kept. Set to false to request one frame at a time instead.
+         * Defaults to true.
+         */
+        public static final String PIPELINED_PREVIEW = "PIPELINED_PREVIEW";
+
+        /**
+         * Whether to return every distinct barcode found in the frame instead
+         * of only the first one, as a boolean. The contents are returned with
+         * intent.getStringArrayExtra(RESULTS), their formats with
+         * {@link #RESULT_FORMATS}. Defaults to false.
+         */
+        public static final String BATCH_MODE = "BATCH_MODE";
+
+        /**
+         * Whether to keep scanning after a barcode is found instead of
+         * returning, as a boolean. Each new code is passed to the
+         * {@link ScanResultListener} set on the activity. When the user leaves,
+         * every code found is returned in {@link #RESULTS} and
+         * {@link #RESULT_FORMATS}. Defaults to false.
+         */
+        public static final String CONTINUOUS_MODE = "CONTINUOUS_MODE";
+
+        /**
+         * In {@link #CONTINUOUS_MODE}, a code is not reported again until it
+         * has been out of view for this many milliseconds, as an int. 0 turns
+         * the time window off. Defaults to 3000.
+         */
+        public static final String DEDUP_WINDOW_MILLIS = "DEDUP_WINDOW_MILLIS";
+
+        /**
+         * In {@link #CONTINUOUS_MODE}, a code is not reported again while it is
+         * one of this many most recently seen codes, as an int. 0 turns the
+         * count window off. Defaults to 0.
+         */
+        public static final String DEDUP_WINDOW_SIZE = "DEDUP_WINDOW_SIZE";
+
+        /**
+         * How many of the most recent frames must decode the same content
+         * before a result is accepted, per format. It is a comma-separated list
+         * of FORMAT:K/N entries, for example "EAN_13:3/4,CODE_128:2/3". Formats
+         * that are not listed keep the default: 1D formats need 2 of 3 frames,
+         * and all other formats are accepted from one frame. Optional.
+         */
+        public static final String CONSENSUS = "CONSENSUS";
+
+        /**
+         * How often, in seconds, to write the decode metrics (per-stage timing
+         * histograms and frame counters) to the debug log, as an int. 0 turns
+         * the periodic log off. Defaults to 0.
+         */
+        public static final String METRICS_LOG_INTERVAL = "METRICS_LOG_INTERVAL";
+
+        /**
+         * Path of a file to write a startup trace to, as a String. When set, the
+         * phases from onResume to the first result (opening and configuring the
+         * camera, starting the preview and decode threads, autofocus, each decode)
+         * are recorded and written in Chrome trace JSON format when the scanner
+         * pauses. Open the file in chrome://tracing or Perfetto.
+         */
+        public static final String TRACE_FILE = "TRACE_FILE";
+
+        /**
+         * Path of a file to record the raw camera preview frames to, as a String.
+         * Each frame is stored with its size, format, timestamp and the decode
+         * rectangle, so field problems can be replayed off-device. Frames are
+         * dropped rather than stalling the preview if the disk falls behind.
+         * If the file already holds a recording, new frames are appended to it,
+         * so pausing and resuming the scan keeps the earlier frames.
+         * Read the file back with FrameRecording.
+         */
+        public static final String RECORD_FILE = "RECORD_FILE";
+
+        /**
+         * Name of the decode profile to use, as a String: one of
+         * {@link #FAST_PROFILE}, {@link #BALANCED_PROFILE},
+         * {@link #EXHAUSTIVE_PROFILE}, {@link #PURE_PROFILE} or
+         * {@link #GS1_PROFILE}. A profile sets the extra decode hints and, when
+         * neither {@link #SCAN_FORMATS} nor {@link #MODE} is given, the formats.
+         * Defaults to {@link #BALANCED_PROFILE}.
+         */
+        public static final String PROFILE = "SCAN_PROFILE";
+
+        /**
+         * Cheapest decoding: no TRY_HARDER, and only QR codes and UPC/EAN
+         * unless formats are given.
+         */
+        public static final String FAST_PROFILE = "FAST_PROFILE";
+
+        /**
+         * No extra hints and the default formats.
+         */
+        public static final String BALANCED_PROFILE = "BALANCED_PROFILE";
+
+        /**
+         * TRY_HARDER at full resolution, and a second pass on the inverted
+         * image for light-on-dark codes. The slowest profile.
+         */
+        public static final String EXHAUSTIVE_PROFILE = "EXHAUSTIVE_PROFILE";
+
+        /**
+         * PURE_BARCODE, for images that contain one unrotated code and nothing
+         * else, such as screenshots.
+         */
+        public static final String PURE_PROFILE = "PURE_PROFILE";
+
+        /**
+         * ASSUME_GS1, for GS1-128 logistics labels.
+         */
+        public static final String GS1_PROFILE = "GS1_PROFILE";
+
+        /**
+         * Escalate the decoding effort while the user keeps pointing at a code
+         * that does not decode, as an int: the number of consecutive failed
+         * frames before stepping up a level. Frames start with a cheap pass
+         * (QR codes and UPC/EAN only, downscaled, no TRY_HARDER), then all
+         * formats with a full-resolution fallback, then TRY_HARDER with
+         * inverted and rotated passes. A success drops back to the cheap pass.
+         * When set, this replaces {@link #PROFILE}. 0 turns escalation off.
+         * Defaults to 0.
+         */
+        public static final String ESCALATE_AFTER = "ESCALATE_AFTER";
+
         /**
          * If a barcode is found, Barcodes returns RESULT_OK to
          * onActivityResult() of the app which requested the scan via
@@ -94,6 +226,19 @@ public final class Intents {
          */
         public static final String RESULT_FORMAT = "SCAN_RESULT_FORMAT";
 
+        /**
+         * In {@link #BATCH_MODE}, call intent.getStringArrayExtra(RESULTS) to
+         * get the contents of all barcodes found, in the order they were
+         * decoded.
+         */
+        public static final String RESULTS = "SCAN_RESULTS";
+
+        /**
+         * In {@link #BATCH_MODE}, call intent.getStringArrayExtra(RESULT_FORMATS)
+         * to get the format of each entry of {@link #RESULTS}.
+         */
+        public static final String RESULT_FORMATS = "SCAN_RESULT_FORMATS";
+
         /**
          * Setting this to false will not save scanned codes in the history.
          */
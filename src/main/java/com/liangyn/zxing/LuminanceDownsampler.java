@@ -0,0 +1,40 @@
+package com.liangyn.zxing;
+
+/**
+ * 灰度图缩小工具：2x2 box 滤波（四个像素取平均），整数运算，结果写入调用方提供的数组
+ * 说明：缩小 4 倍可对 2 倍的结果再做一次。宽高为奇数时舍去最后一列（行）。
+ */
+public final class LuminanceDownsampler {
+
+    private LuminanceDownsampler() {
+    }
+
+    /**
+     * 缩小 2 倍
+     *
+     * @param luminances 按行存放的灰度图
+     * @param width      宽度
+     * @param height     高度
+     * @param output     缩小结果，长度至少为 (width / 2) * (height / 2)
+     */
+    public static void downsample2x(byte[] luminances, int width, int height, byte[] output) {
+        int outputWidth = width >> 1;
+        int outputHeight = height >> 1;
+        if (output.length < outputWidth * outputHeight) {
+            throw new IllegalArgumentException("Output is too small: " + output.length);
+        }
+        int outputOffset = 0;
+        for (int y = 0; y < outputHeight; y++) {
+            int row = (y << 1) * width;
+            int nextRow = row + width;
+            for (int x = 0; x < outputWidth; x++) {
+                int sum = (luminances[row] & 0xFF) + (luminances[row + 1] & 0xFF)
+                        + (luminances[nextRow] & 0xFF) + (luminances[nextRow + 1] & 0xFF);
+                output[outputOffset++] = (byte) ((sum + 2) >> 2);
+                row += 2;
+                nextRow += 2;
+            }
+        }
+    }
+
+}
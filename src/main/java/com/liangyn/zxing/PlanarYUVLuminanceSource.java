@@ -54,6 +54,22 @@ public final class PlanarYUVLuminanceSource extends LuminanceSource {
         this.top = top;
     }
 
+    /**
+     * Builds a source over the crop rectangle of the frame rotated clockwise
+     * by rotation degrees (0, 90, 180 or 270), without rotating the whole frame
+     * first. The rectangle is given in rotated coordinates; only its pixels are
+     * read, straight from the un-rotated Y plane, and written into cropData
+     * which must hold at least width * height bytes.
+     */
+    public static PlanarYUVLuminanceSource fromRotatedCrop(byte[] yuvData,
+                                                           int dataWidth, int dataHeight, int rotation, int left, int top,
+                                                           int width, int height, byte[] cropData) {
+        PlanarYUVRotator.rotate(yuvData, dataWidth, dataHeight, rotation, left, top,
+                width, height, cropData, PlanarYUVRotator.DEFAULT_BLOCK_SIZE);
+        return new PlanarYUVLuminanceSource(cropData, width, height, 0, 0,
+                width, height);
+    }
+
     @Override
     public byte[] getRow(int y, byte[] row) {
         if (y < 0 || y >= getHeight()) {
@@ -108,6 +124,12 @@ public final class PlanarYUVLuminanceSource extends LuminanceSource {
         return true;
     }
 
+    @Override
+    public LuminanceSource crop(int left, int top, int width, int height) {
+        return new PlanarYUVLuminanceSource(yuvData, dataWidth, dataHeight,
+                this.left + left, this.top + top, width, height);
+    }
+
     public int getDataWidth() {
         return dataWidth;
     }
@@ -116,25 +138,12 @@ public final class PlanarYUVLuminanceSource extends LuminanceSource {
         return dataHeight;
     }
 
+    /**
+     * @deprecated 解码线程不再生成位图，改用 {@link BarcodeThumbnail}；
+     * 本方法转交给它，返回的位图为 RGB_565
+     */
+    @Deprecated
     public Bitmap renderCroppedGreyscaleBitmap() {
-        int width = getWidth();
-        int height = getHeight();
-        int[] pixels = new int[width * height];
-        byte[] yuv = yuvData;
-        int inputOffset = top * dataWidth + left;
-
-        for (int y = 0; y < height; y++) {
-            int outputOffset = y * width;
-            for (int x = 0; x < width; x++) {
-                int grey = yuv[inputOffset + x] & 0xff;
-                pixels[outputOffset + x] = 0xFF000000 | (grey * 0x00010101);
-            }
-            inputOffset += dataWidth;
-        }
-
-        Bitmap bitmap = Bitmap.createBitmap(width, height,
-                Bitmap.Config.ARGB_8888);
-        bitmap.setPixels(pixels, 0, width, 0, 0, width, height);
-        return bitmap;
+        return new BarcodeThumbnail(getMatrix(), getWidth(), getHeight()).getBitmap();
     }
 }
@@ -0,0 +1,151 @@
+package com.liangyn.zxing;
+
+/**
+ * Y 平面旋转工具，支持顺时针 0/90/180/270 度，可只旋转其中一个矩形区域
+ * 说明：90/270 度是转置操作，按 blockSize 大小分块处理，使读写都落在缓存内，
+ * 避免逐像素跨行写入造成的缓存缺失。
+ */
+public final class PlanarYUVRotator {
+
+    /**
+     * 默认分块边长（像素）
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 32;
+
+    private PlanarYUVRotator() {
+    }
+
+    /**
+     * 旋转后图像的宽度
+     */
+    public static int rotatedWidth(int dataWidth, int dataHeight, int rotation) {
+        return isTransposed(rotation) ? dataHeight : dataWidth;
+    }
+
+    /**
+     * 旋转后图像的高度
+     */
+    public static int rotatedHeight(int dataWidth, int dataHeight, int rotation) {
+        return isTransposed(rotation) ? dataWidth : dataHeight;
+    }
+
+    /**
+     * 旋转整个 Y 平面
+     *
+     * @param yuvData    未旋转的预览数据，Y 平面在前
+     * @param dataWidth  未旋转的宽度
+     * @param dataHeight 未旋转的高度
+     * @param rotation   顺时针旋转角度，0/90/180/270
+     * @param output     旋转结果，长度至少为 dataWidth * dataHeight
+     */
+    public static void rotate(byte[] yuvData, int dataWidth, int dataHeight,
+                              int rotation, byte[] output) {
+        rotate(yuvData, dataWidth, dataHeight, rotation, 0, 0,
+                rotatedWidth(dataWidth, dataHeight, rotation),
+                rotatedHeight(dataWidth, dataHeight, rotation),
+                output, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * 旋转 Y 平面中的一个矩形区域，矩形使用旋转后的坐标
+     *
+     * @param yuvData    未旋转的预览数据，Y 平面在前
+     * @param dataWidth  未旋转的宽度
+     * @param dataHeight 未旋转的高度
+     * @param rotation   顺时针旋转角度，0/90/180/270
+     * @param left       矩形在旋转后图像中的左边界
+     * @param top        矩形在旋转后图像中的上边界
+     * @param width      矩形宽度
+     * @param height     矩形高度
+     * @param output     按行存放的旋转结果，长度至少为 width * height
+     * @param blockSize  转置分块边长
+     */
+    public static void rotate(byte[] yuvData, int dataWidth, int dataHeight,
+                              int rotation, int left, int top, int width, int height,
+                              byte[] output, int blockSize) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Block size must be positive: "
+                    + blockSize);
+        }
+        if (left < 0 || top < 0
+                || left + width > rotatedWidth(dataWidth, dataHeight, rotation)
+                || top + height > rotatedHeight(dataWidth, dataHeight, rotation)) {
+            throw new IllegalArgumentException(
+                    "Crop rectangle does not fit within image data.");
+        }
+
+        switch (rotation) {
+            case 0:
+                copyRows(yuvData, dataWidth, left, top, width, height, output);
+                break;
+            case 180:
+                reverseRows(yuvData, dataWidth, dataHeight, left, top, width,
+                        height, output);
+                break;
+            case 90:
+                // 旋转后 (y, x) 对应原图第 dataHeight - 1 - left - x 行、第 top + y 列
+                transpose(yuvData, (dataHeight - 1 - left) * dataWidth + top,
+                        1, -dataWidth, width, height, output, blockSize);
+                break;
+            case 270:
+                // 旋转后 (y, x) 对应原图第 left + x 行、第 dataWidth - 1 - top - y 列
+                transpose(yuvData, left * dataWidth + dataWidth - 1 - top,
+                        -1, dataWidth, width, height, output, blockSize);
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported rotation: "
+                        + rotation);
+        }
+    }
+
+    private static boolean isTransposed(int rotation) {
+        return rotation == 90 || rotation == 270;
+    }
+
+    private static void copyRows(byte[] yuvData, int dataWidth, int left,
+                                 int top, int width, int height, byte[] output) {
+        int inputOffset = top * dataWidth + left;
+        for (int y = 0; y < height; y++) {
+            System.arraycopy(yuvData, inputOffset, output, y * width, width);
+            inputOffset += dataWidth;
+        }
+    }
+
+    private static void reverseRows(byte[] yuvData, int dataWidth,
+                                    int dataHeight, int left, int top, int width, int height,
+                                    byte[] output) {
+        int inputOffset = (dataHeight - 1 - top) * dataWidth + dataWidth - 1 - left;
+        int outputOffset = 0;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                output[outputOffset++] = yuvData[inputOffset - x];
+            }
+            inputOffset -= dataWidth;
+        }
+    }
+
+    /**
+     * 分块转置：输出 (y, x) 取自 yuvData[base + y * rowStep + x * columnStep]，
+     * 其中 rowStep 为 ±1，每个分块内逐列按顺序读取原图的一行
+     */
+    private static void transpose(byte[] yuvData, int base, int rowStep,
+                                  int columnStep, int width, int height, byte[] output,
+                                  int blockSize) {
+        for (int y0 = 0; y0 < height; y0 += blockSize) {
+            int y1 = Math.min(y0 + blockSize, height);
+            for (int x0 = 0; x0 < width; x0 += blockSize) {
+                int x1 = Math.min(x0 + blockSize, width);
+                for (int x = x0; x < x1; x++) {
+                    int inputOffset = base + y0 * rowStep + x * columnStep;
+                    int outputOffset = y0 * width + x;
+                    for (int y = y0; y < y1; y++) {
+                        output[outputOffset] = yuvData[inputOffset];
+                        inputOffset += rowStep;
+                        outputOffset += width;
+                    }
+                }
+            }
+        }
+    }
+
+}
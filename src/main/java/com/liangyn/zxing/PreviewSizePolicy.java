@@ -0,0 +1,143 @@
+package com.liangyn.zxing;
+
+import java.util.regex.Pattern;
+
+/**
+ * 预览尺寸的选择策略：按条码需要的分辨率选择，而不是按屏幕分辨率
+ * 说明：在与屏幕宽高比相近的预览尺寸中，选择面积最小、且扫描框内每个模块（最窄的条或空）
+ * 至少有 minPixelsPerModule 个像素的尺寸，同时扫描框对应的像素数不超过 maxCropPixels（解码耗时预算）。
+ * 都达不到时在预算内选最大的；预算内没有时选最小的。不依赖 Android，便于在 JVM 中验证。
+ * 注：预览帧顺时针旋转 90° 显示，屏幕的宽对应预览帧的高，与 CameraManager.getFrameRectInPreview 一致。
+ */
+final class PreviewSizePolicy {
+
+    private static final Pattern COMMA_PATTERN = Pattern.compile(",");
+
+    /**
+     * 扫描框宽度内的模块数：EAN-13 为 95 个模块加两侧静区，QR 码 5 版（37 模块）加静区也在此范围内
+     */
+    static final int DEFAULT_MODULES_ACROSS = 120;
+
+    /**
+     * 每个模块至少 2 个像素才能稳定识别
+     */
+    static final int DEFAULT_MIN_PIXELS_PER_MODULE = 2;
+
+    /**
+     * 扫描框对应的像素数上限
+     */
+    static final int DEFAULT_MAX_CROP_PIXELS = 640 * 480;
+
+    /**
+     * 预览帧短边不小于该值，避免预览画面过于模糊、难以对准
+     */
+    static final int DEFAULT_MIN_PREVIEW_HEIGHT = 480;
+
+    /**
+     * 宽高比与屏幕的相对差值比最接近的尺寸多出不超过该值的才会被选择，避免预览画面明显变形
+     */
+    private static final double ASPECT_TOLERANCE = 0.125;
+
+    private PreviewSizePolicy() {
+    }
+
+    /**
+     * 从相机参数 preview-size-values（如 "1920x1080,1280x720,640x480"）中选择预览尺寸
+     *
+     * @param previewSizeValues  相机支持的预览尺寸，宽大于高
+     * @param screenWidth        屏幕宽度（竖屏）
+     * @param screenHeight       屏幕高度
+     * @param frameWidth         扫描框在屏幕上的宽度
+     * @param frameHeight        扫描框在屏幕上的高度
+     * @param modulesAcross      扫描框宽度内的模块数
+     * @param minPixelsPerModule 每个模块至少多少像素
+     * @param maxCropPixels      扫描框对应的像素数上限
+     * @param minPreviewHeight   预览帧短边的下限
+     * @return {宽, 高}，没有可解析的尺寸时返回 null
+     */
+    static int[] findBestPreviewSize(CharSequence previewSizeValues,
+                                     int screenWidth, int screenHeight,
+                                     int frameWidth, int frameHeight,
+                                     int modulesAcross, int minPixelsPerModule,
+                                     int maxCropPixels, int minPreviewHeight) {
+        int[][] sizes = parseSizes(previewSizeValues);
+        if (sizes.length == 0) {
+            return null;
+        }
+        // 竖屏显示，预览帧的宽对应屏幕的高；全面屏等没有相同宽高比时以最接近的为准
+        double screenAspect = (double) screenHeight / screenWidth;
+        double closestAspect = Double.MAX_VALUE;
+        for (int[] size : sizes) {
+            closestAspect = Math.min(closestAspect, aspectDifference(size, screenAspect));
+        }
+
+        int requiredPixels = modulesAcross * minPixelsPerModule;
+        int[] best = null;
+        int[] largestInBudget = null;
+        int[] smallest = null;
+        for (int[] size : sizes) {
+            if (aspectDifference(size, screenAspect) > closestAspect + ASPECT_TOLERANCE) {
+                continue;
+            }
+            if (smallest == null || area(size) < area(smallest)) {
+                smallest = size;
+            }
+            long cropWidth = (long) frameWidth * size[1] / screenWidth;
+            long cropHeight = (long) frameHeight * size[0] / screenHeight;
+            if (cropWidth * cropHeight > maxCropPixels) {
+                continue;
+            }
+            if (largestInBudget == null || area(size) > area(largestInBudget)) {
+                largestInBudget = size;
+            }
+            if (cropWidth >= requiredPixels && size[1] >= minPreviewHeight
+                    && (best == null || area(size) < area(best))) {
+                best = size;
+            }
+        }
+        if (best == null) {
+            best = largestInBudget != null ? largestInBudget : smallest;
+        }
+        return best != null ? new int[]{best[0], best[1]} : null;
+    }
+
+    /**
+     * 解析 "宽x高" 列表，无法解析的项忽略
+     */
+    static int[][] parseSizes(CharSequence previewSizeValues) {
+        String[] values = COMMA_PATTERN.split(previewSizeValues);
+        int[][] sizes = new int[values.length][];
+        int count = 0;
+        for (String previewSize : values) {
+            previewSize = previewSize.trim();
+            int dimPosition = previewSize.indexOf('x');
+            if (dimPosition < 0) {
+                continue;
+            }
+            try {
+                int width = Integer.parseInt(previewSize.substring(0, dimPosition));
+                int height = Integer.parseInt(previewSize.substring(dimPosition + 1));
+                if (width > 0 && height > 0) {
+                    sizes[count++] = new int[]{width, height};
+                }
+            } catch (NumberFormatException nfe) {
+                // continue
+            }
+        }
+        int[][] result = new int[count][];
+        System.arraycopy(sizes, 0, result, 0, count);
+        return result;
+    }
+
+    /**
+     * 宽高比的相对差值
+     */
+    private static double aspectDifference(int[] size, double aspect) {
+        return Math.abs((double) size[0] / size[1] - aspect) / aspect;
+    }
+
+    private static long area(int[] size) {
+        return (long) size[0] * size[1];
+    }
+
+}
@@ -0,0 +1,351 @@
+package com.liangyn.zxing;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 按固定帧率回放 NV21 帧的帧来源，用于脱离相机压测完整的扫码流程
+ * 说明：帧来自一个目录下的原始帧文件（按文件名排序），或一个首尾相接存放多帧的文件（内存映射，
+ * 不整体读入内存）。像相机一样在自己的线程中按时间推进：接收方跟不上时，
+ * 连续模式下没有空闲缓冲区的帧被丢弃，单帧模式下未请求期间的帧被跳过。
+ * 回放 {@link FrameRecorder} 的录制文件时，每帧录制的解码区域和时间戳随帧交给接收方，
+ * 且可以按录制时的帧间隔回放，见 {@link #fromRecording(File)}。
+ */
+public final class ReplayFrameSource implements FrameSource {
+
+    /**
+     * 录制文件只有一帧、无法得出帧间隔时的帧率
+     */
+    private static final float DEFAULT_FPS = 30f;
+
+    /**
+     * 按录制时间回放时相邻两帧的最大间隔：同一文件中追加的多次录制之间（扫描界面暂停期间）
+     * 的空档按该值计，不原样等待
+     */
+    private static final long MAX_RECORDED_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final int width;
+    private final int height;
+    private final int frameSize;
+    private final long frameIntervalNanos;
+    private final List<ByteBuffer> frames;
+    /**
+     * 录制时各帧的时间戳和解码区域，不是录制文件时为 null
+     */
+    private final long[] timestamps;
+    private final int[][] crops;
+    /**
+     * 是否按 timestamps 的间隔回放，否则按固定帧率
+     */
+    private final boolean recordedTiming;
+    private volatile boolean loop = true;
+
+    private final Object lock = new Object();
+    private Thread thread;
+    private volatile boolean finished;
+    private Callback continuousCallback;
+    private Callback oneShotCallback;
+    private final ConcurrentLinkedQueue<byte[]> freeBuffers = new ConcurrentLinkedQueue<byte[]>();
+
+    private final AtomicLong framesDelivered = new AtomicLong();
+    private final AtomicLong framesDropped = new AtomicLong();
+
+    /**
+     * @param frames 每帧的数据，至少包含 width * height 字节的 Y 平面
+     * @param fps    每秒送出的帧数
+     */
+    public ReplayFrameSource(int width, int height, float fps, List<ByteBuffer> frames) {
+        this(width, height, fps, frames, null, null, false);
+    }
+
+    private ReplayFrameSource(int width, int height, float fps, List<ByteBuffer> frames,
+                              long[] timestamps, int[][] crops, boolean recordedTiming) {
+        if (width <= 0 || height <= 0 || fps <= 0 || frames.isEmpty()) {
+            throw new IllegalArgumentException("Bad replay source: " + width + 'x' + height
+                    + " @" + fps + "fps, " + frames.size() + " frames");
+        }
+        this.width = width;
+        this.height = height;
+        frameSize = width * height * 3 / 2;
+        frameIntervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / fps);
+        for (ByteBuffer frame : frames) {
+            if (frame.remaining() < width * height) {
+                throw new IllegalArgumentException("Frame has " + frame.remaining()
+                        + " bytes, expected at least " + width * height);
+            }
+        }
+        this.frames = new ArrayList<ByteBuffer>(frames);
+        this.timestamps = timestamps;
+        this.crops = crops;
+        this.recordedTiming = recordedTiming && timestamps != null;
+    }
+
+    /**
+     * 回放目录下的所有帧文件，按文件名排序，每个文件一帧
+     */
+    public static ReplayFrameSource fromDirectory(File directory, int width, int height, float fps)
+            throws IOException {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            throw new IOException("Not a directory: " + directory);
+        }
+        Arrays.sort(files);
+        List<ByteBuffer> frames = new ArrayList<ByteBuffer>();
+        for (File file : files) {
+            if (file.isFile()) {
+                frames.add(map(file, 0, file.length()));
+            }
+        }
+        return new ReplayFrameSource(width, height, fps, frames);
+    }
+
+    /**
+     * 回放一个文件中首尾相接存放的多帧，每帧 width * height * 3 / 2 字节
+     */
+    public static ReplayFrameSource fromFile(File file, int width, int height, float fps)
+            throws IOException {
+        long frameSize = (long) width * height * 3 / 2;
+        long count = file.length() / frameSize;
+        List<ByteBuffer> frames = new ArrayList<ByteBuffer>();
+        for (long i = 0; i < count; i++) {
+            frames.add(map(file, i * frameSize, frameSize));
+        }
+        return new ReplayFrameSource(width, height, fps, frames);
+    }
+
+    /**
+     * 按录制时的帧间隔回放 {@link FrameRecorder} 录制的文件，见 {@link #fromRecording(File, float)}
+     */
+    public static ReplayFrameSource fromRecording(File file) throws IOException {
+        return fromRecording(file, 0f);
+    }
+
+    /**
+     * 回放 {@link FrameRecorder} 录制的文件，帧尺寸取自第一帧，各帧须尺寸相同；
+     * 每帧录制的解码区域和时间戳随帧交给接收方
+     *
+     * @param fps 每秒送出的帧数；不大于 0 时按录制时的帧间隔回放
+     */
+    public static ReplayFrameSource fromRecording(File file, float fps) throws IOException {
+        List<FrameRecording.Frame> recorded = FrameRecording.open(file).getFrames();
+        if (recorded.isEmpty()) {
+            throw new IOException("No frames in recording: " + file);
+        }
+        int width = recorded.get(0).getWidth();
+        int height = recorded.get(0).getHeight();
+        int count = recorded.size();
+        List<ByteBuffer> frames = new ArrayList<ByteBuffer>(count);
+        long[] timestamps = new long[count];
+        int[][] crops = new int[count][];
+        for (int i = 0; i < count; i++) {
+            FrameRecording.Frame frame = recorded.get(i);
+            if (frame.getWidth() != width || frame.getHeight() != height) {
+                throw new IOException("Frame size changed within recording: " + file);
+            }
+            frames.add(frame.getData());
+            timestamps[i] = frame.getTimestampNanos();
+            if (frame.getCropWidth() > 0 && frame.getCropHeight() > 0) {
+                crops[i] = new int[]{frame.getCropLeft(), frame.getCropTop(),
+                        frame.getCropWidth(), frame.getCropHeight()};
+            }
+        }
+        boolean recordedTiming = fps <= 0;
+        if (recordedTiming) {
+            // 从最后一帧循环回第一帧时按平均帧率
+            long span = 0;
+            for (int i = 1; i < count; i++) {
+                span += recordedInterval(timestamps, i - 1);
+            }
+            fps = count > 1 && span > 0
+                    ? (count - 1) * (float) TimeUnit.SECONDS.toNanos(1) / span : DEFAULT_FPS;
+        }
+        return new ReplayFrameSource(width, height, fps, frames, timestamps, crops,
+                recordedTiming);
+    }
+
+    private static MappedByteBuffer map(File file, long position, long size) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            // 映射在通道关闭后仍然有效
+            return raf.getChannel().map(FileChannel.MapMode.READ_ONLY, position, size);
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * 是否在最后一帧之后从头循环，默认循环；不循环时送完所有帧即结束，见 {@link #isFinished()}
+     */
+    public void setLoop(boolean loop) {
+        this.loop = loop;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    public int getFrameCount() {
+        return frames.size();
+    }
+
+    @Override
+    public void requestFrame(Callback callback) {
+        synchronized (lock) {
+            oneShotCallback = callback;
+            startThread();
+        }
+    }
+
+    @Override
+    public void start(Callback callback, int bufferCount) {
+        synchronized (lock) {
+            freeBuffers.clear();
+            for (int i = 0; i < bufferCount; i++) {
+                freeBuffers.add(new byte[frameSize]);
+            }
+            continuousCallback = callback;
+            startThread();
+        }
+    }
+
+    @Override
+    public void releaseFrame(byte[] data) {
+        if (data != null && data.length == frameSize) {
+            freeBuffers.add(data);
+        }
+    }
+
+    @Override
+    public void stop() {
+        Thread stopping;
+        synchronized (lock) {
+            continuousCallback = null;
+            oneShotCallback = null;
+            stopping = thread;
+            thread = null;
+        }
+        if (stopping != null) {
+            stopping.interrupt();
+            try {
+                stopping.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * 不循环时是否已送完所有帧
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * 已送给接收方的帧数
+     */
+    public long getFramesDelivered() {
+        return framesDelivered.get();
+    }
+
+    /**
+     * 连续模式下因没有空闲缓冲区而丢弃的帧数
+     */
+    public long getFramesDropped() {
+        return framesDropped.get();
+    }
+
+    private void startThread() {
+        if (thread == null) {
+            finished = false;
+            thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    replay();
+                }
+            }, "FrameReplay");
+            thread.start();
+        }
+    }
+
+    private void replay() {
+        long next = System.nanoTime();
+        int index = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            long wait = next - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+                continue;
+            }
+            if (index == frames.size()) {
+                if (!loop) {
+                    break;
+                }
+                index = 0;
+            }
+            next += intervalAfter(index);
+            deliver(index++);
+        }
+        finished = true;
+    }
+
+    /**
+     * 第 index 帧到下一帧的间隔
+     */
+    private long intervalAfter(int index) {
+        if (recordedTiming && index + 1 < timestamps.length) {
+            return recordedInterval(timestamps, index);
+        }
+        return frameIntervalNanos;
+    }
+
+    private static long recordedInterval(long[] timestamps, int index) {
+        return Math.min(MAX_RECORDED_INTERVAL_NANOS,
+                Math.max(0L, timestamps[index + 1] - timestamps[index]));
+    }
+
+    private void deliver(int index) {
+        Callback callback;
+        byte[] data;
+        synchronized (lock) {
+            callback = continuousCallback;
+            if (callback != null) {
+                data = freeBuffers.poll();
+                if (data == null) {
+                    framesDropped.incrementAndGet();
+                    return;
+                }
+            } else if (oneShotCallback != null) {
+                callback = oneShotCallback;
+                oneShotCallback = null;
+                data = new byte[frameSize];
+            } else {
+                return;
+            }
+        }
+        ByteBuffer source = frames.get(index).duplicate();
+        source.get(data, 0, Math.min(source.remaining(), frameSize));
+        framesDelivered.incrementAndGet();
+        callback.onFrame(data, width, height,
+                timestamps != null ? timestamps[index] : System.nanoTime(),
+                crops != null ? crops[index] : null);
+    }
+
+}
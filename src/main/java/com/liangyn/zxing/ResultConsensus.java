@@ -0,0 +1,268 @@
+package com.liangyn.zxing;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.Result;
+import com.google.zxing.ResultPoint;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * 多帧一致：最近 N 帧中有 K 帧识别出相同的条码（格式和内容都相同）才采用
+ * 说明：单帧的一维码读取没有纠错，污损标签容易误读；二维码自带纠错，默认单帧即采用。
+ * 没有识别到条码的帧也计入 N。达成一致时返回最新一帧的结果，并附上各帧的结果点，
+ * 之后清空历史；批量模式见 {@link #onBatchFrame}。zxing 的解码器不提供部分结果，只统计完整的识别结果。
+ * 只在主线程（CaptureActivityHandler）中调用，无需同步。
+ */
+final class ResultConsensus {
+
+    private static final Pattern COMMA_PATTERN = Pattern.compile(",");
+
+    /**
+     * 一维码默认 3 帧中有 2 帧一致
+     */
+    private static final int ONE_D_AGREE_FRAMES = 2;
+    private static final int ONE_D_WINDOW_FRAMES = 3;
+
+    private final Map<BarcodeFormat, int[]> requirements =
+            new EnumMap<BarcodeFormat, int[]>(BarcodeFormat.class);
+    /**
+     * 最近若干帧的识别结果，环形存放，没有识别到的帧为 null
+     */
+    private Result[][] history = new Result[ONE_D_WINDOW_FRAMES][];
+    private int next;
+    private int frames;
+    /**
+     * 批量模式下已经一致、等待同批其他条码的结果，以及第一个一致后经过的帧数
+     */
+    private final List<Result> batch = new ArrayList<Result>();
+    private int batchFrames;
+
+    ResultConsensus() {
+        for (BarcodeFormat format : DecodeFormats.ONE_D_FORMATS) {
+            setRequirement(format, ONE_D_AGREE_FRAMES, ONE_D_WINDOW_FRAMES);
+        }
+    }
+
+    /**
+     * 解析形如 "EAN_13:2/3,CODE_128:3/5" 的设置，无效的项忽略，未列出的格式使用默认值
+     */
+    static ResultConsensus parse(String requirements) {
+        ResultConsensus consensus = new ResultConsensus();
+        if (requirements == null) {
+            return consensus;
+        }
+        for (String item : COMMA_PATTERN.split(requirements)) {
+            int colon = item.indexOf(':');
+            int slash = item.indexOf('/', colon + 1);
+            if (colon < 0 || slash < 0) {
+                continue;
+            }
+            try {
+                consensus.setRequirement(BarcodeFormat.valueOf(item.substring(0, colon).trim()),
+                        Integer.parseInt(item.substring(colon + 1, slash).trim()),
+                        Integer.parseInt(item.substring(slash + 1).trim()));
+            } catch (IllegalArgumentException iae) {
+                // ignore it then
+            }
+        }
+        return consensus;
+    }
+
+    /**
+     * @param agreeFrames  需要一致的帧数 K，至少为 1
+     * @param windowFrames 统计的帧数 N，不小于 K
+     */
+    void setRequirement(BarcodeFormat format, int agreeFrames, int windowFrames) {
+        if (agreeFrames < 1 || windowFrames < agreeFrames) {
+            throw new IllegalArgumentException("Invalid consensus " + agreeFrames
+                    + "/" + windowFrames + " for " + format);
+        }
+        requirements.put(format, new int[]{agreeFrames, windowFrames});
+        if (windowFrames > history.length) {
+            Result[][] grown = new Result[windowFrames][];
+            for (int i = 1; i <= Math.min(frames, history.length); i++) {
+                grown[windowFrames - i] = history[(next - i + history.length) % history.length];
+            }
+            history = grown;
+            next = 0;
+            frames = Math.min(frames, windowFrames);
+        }
+    }
+
+    /**
+     * 记录一帧的识别结果
+     *
+     * @param results 该帧识别到的条码，没有识别到时为 null
+     * @return 达成一致的结果，没有时返回 null
+     */
+    Result[] onFrame(Result[] results) {
+        record(results);
+        if (results == null) {
+            return null;
+        }
+
+        List<Result> agreed = null;
+        for (Result result : results) {
+            Result match = agree(result);
+            if (match != null) {
+                if (agreed == null) {
+                    agreed = new ArrayList<Result>(results.length);
+                }
+                agreed.add(match);
+            }
+        }
+        if (agreed == null) {
+            return null;
+        }
+        reset();
+        return agreed.toArray(new Result[agreed.size()]);
+    }
+
+    /**
+     * 批量模式下记录一帧的识别结果
+     * 说明：逐个条码判断是否一致，已一致的条码保留到整批返回，不影响其他条码的统计；
+     * 窗口内见过的条码都已一致或不可能再一致（之后每帧都识别到也凑不够 K 帧）时整批返回。
+     * 不断出现新的误读时，第一个条码一致后最多再等待最长窗口的帧数。
+     *
+     * @param results 该帧识别到的条码，没有识别到时为 null
+     * @return 这一批达成一致的结果，按一致的先后排列；还要等待或没有时返回 null
+     */
+    Result[] onBatchFrame(Result[] results) {
+        record(results);
+        if (results != null) {
+            for (Result result : results) {
+                if (find(batch, result) == null) {
+                    Result match = agree(result);
+                    if (match != null) {
+                        batch.add(match);
+                    }
+                }
+            }
+        }
+        if (batch.isEmpty() || (++batchFrames < history.length && hasPending())) {
+            return null;
+        }
+        Result[] agreed = batch.toArray(new Result[batch.size()]);
+        reset();
+        return agreed;
+    }
+
+    void reset() {
+        for (int i = 0; i < history.length; i++) {
+            history[i] = null;
+        }
+        next = 0;
+        frames = 0;
+        batch.clear();
+        batchFrames = 0;
+    }
+
+    private void record(Result[] results) {
+        history[next] = results;
+        next = (next + 1) % history.length;
+        if (frames < history.length) {
+            frames++;
+        }
+    }
+
+    /**
+     * 最近第 i 帧（1 为最新一帧）的识别结果
+     */
+    private Result[] recent(int i) {
+        return history[(next - i + history.length) % history.length];
+    }
+
+    /**
+     * @return result 在其窗口内达成一致时返回附上各帧结果点的结果，否则返回 null
+     */
+    private Result agree(Result result) {
+        int[] requirement = requirements.get(result.getBarcodeFormat());
+        int windowFrames = requirement != null ? requirement[1] : 1;
+        int agreeFrames = requirement != null ? requirement[0] : 1;
+        List<ResultPoint> points = new ArrayList<ResultPoint>();
+        int agree = 0;
+        for (int i = 1; i <= Math.min(windowFrames, frames); i++) {
+            Result match = find(recent(i), result);
+            if (match != null) {
+                agree++;
+                ResultPoint[] framePoints = match.getResultPoints();
+                if (framePoints != null) {
+                    for (ResultPoint point : framePoints) {
+                        points.add(point);
+                    }
+                }
+            }
+        }
+        if (agree < agreeFrames) {
+            return null;
+        }
+        if (agree > 1) {
+            Result merged = new Result(result.getText(), result.getRawBytes(),
+                    points.toArray(new ResultPoint[points.size()]),
+                    result.getBarcodeFormat(), result.getTimestamp());
+            merged.putAllMetadata(result.getResultMetadata());
+            return merged;
+        }
+        return result;
+    }
+
+    /**
+     * 窗口内是否还有未一致、但之后几帧都识别到时仍能一致的条码
+     */
+    private boolean hasPending() {
+        for (int i = 1; i <= frames; i++) {
+            Result[] results = recent(i);
+            if (results == null) {
+                continue;
+            }
+            for (Result result : results) {
+                if (find(batch, result) == null && canStillAgree(result)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 再过 ahead 帧时，窗口内仍留有已识别到 result 的帧，且加上这几帧能凑够 K 帧
+     */
+    private boolean canStillAgree(Result result) {
+        int[] requirement = requirements.get(result.getBarcodeFormat());
+        if (requirement == null) {
+            return false;
+        }
+        for (int ahead = 1; ahead < requirement[1]; ahead++) {
+            int seen = 0;
+            for (int i = 1; i <= Math.min(requirement[1] - ahead, frames); i++) {
+                if (find(recent(i), result) != null) {
+                    seen++;
+                }
+            }
+            if (seen > 0 && seen + ahead >= requirement[0]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Result find(List<Result> results, Result target) {
+        for (Result result : results) {
+            if (result.getBarcodeFormat() == target.getBarcodeFormat()
+                    && result.getText().equals(target.getText())) {
+                return result;
+            }
+        }
+        return null;
+    }
+
+    private static Result find(Result[] results, Result target) {
+        return results != null ? find(Arrays.asList(results), target) : null;
+    }
+
+}
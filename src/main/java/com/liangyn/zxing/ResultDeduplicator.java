@@ -0,0 +1,65 @@
+package com.liangyn.zxing;
+
+import com.google.zxing.Result;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 连续扫描时过滤重复的条码
+ * 说明：以格式和内容区分条码。按时间：同一条码距上次被看到不足 windowMillis 时视为重复，
+ * 停留在画面中会一直刷新时间，移开超过窗口后再扫才会重新上报；按数量：最近看到的
+ * windowSize 个不同条码视为重复。两者都设置时满足任一条件即视为重复。
+ * 只在主线程中使用，无需同步。
+ */
+final class ResultDeduplicator {
+
+    private final long windowMillis;
+    private final int windowSize;
+    /**
+     * 条码最近一次被看到的时间，按访问顺序排列，最久未见的在前
+     */
+    private final LinkedHashMap<String, Long> lastSeen;
+
+    /**
+     * @param windowMillis 时间窗口，不大于 0 时不按时间去重
+     * @param windowSize   数量窗口，不大于 0 时不按数量去重
+     */
+    ResultDeduplicator(long windowMillis, final int windowSize) {
+        this.windowMillis = windowMillis;
+        this.windowSize = windowSize;
+        lastSeen = new LinkedHashMap<String, Long>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return windowSize > 0 && size() > windowSize;
+            }
+        };
+    }
+
+    /**
+     * @param nowMillis 当前时间，如 SystemClock.uptimeMillis()
+     * @return 是否是新条码，应当上报
+     */
+    boolean accept(Result result, long nowMillis) {
+        if (windowMillis <= 0 && windowSize <= 0) {
+            return true;
+        }
+        if (windowMillis > 0) {
+            // 最久未见的在前，遇到第一个未过期的即可停止
+            Iterator<Long> it = lastSeen.values().iterator();
+            while (it.hasNext() && nowMillis - it.next() >= windowMillis) {
+                it.remove();
+            }
+        }
+        String key = result.getBarcodeFormat() + ":" + result.getText();
+        boolean seen = lastSeen.get(key) != null;
+        lastSeen.put(key, nowMillis);
+        return !seen;
+    }
+
+    void clear() {
+        lastSeen.clear();
+    }
+
+}
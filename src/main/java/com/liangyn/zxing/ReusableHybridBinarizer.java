@@ -0,0 +1,416 @@
+/*
+ * Copyright 2009 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.liangyn.zxing;
+
+import com.google.zxing.Binarizer;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.common.BitArray;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.HybridBinarizer;
+
+/**
+ * Produces exactly the same output as {@link HybridBinarizer} (and, for 1D
+ * rows and small images, its GlobalHistogramBinarizer superclass), but keeps
+ * the BitMatrix, black points, row luminances and histogram in a
+ * {@link Workspace} that is reused for every frame of the same size.
+ * <p>
+ * A Workspace is not thread safe; each decode thread owns one. The matrix
+ * returned by {@link #getBlackMatrix()} is only valid until the next frame is
+ * binarized with the same workspace. Binarizers for cropped or rotated
+ * sources, as created by {@link #createBinarizer(LuminanceSource)}, are plain
+ * HybridBinarizers so they never overwrite the matrix of the full frame.
+ */
+public final class ReusableHybridBinarizer extends Binarizer {
+
+    private static final int LUMINANCE_BITS = 5;
+    private static final int LUMINANCE_SHIFT = 8 - LUMINANCE_BITS;
+    private static final int LUMINANCE_BUCKETS = 1 << LUMINANCE_BITS;
+
+    // This class uses 5x5 blocks to compute local luminance, where each block is 8x8 pixels.
+    // So this is the smallest dimension in each axis we can accept.
+    private static final int BLOCK_SIZE_POWER = 3;
+    private static final int BLOCK_SIZE = 1 << BLOCK_SIZE_POWER; // ...0100...00
+    private static final int BLOCK_SIZE_MASK = BLOCK_SIZE - 1;   // ...0011...11
+    private static final int MINIMUM_DIMENSION = BLOCK_SIZE * 5;
+    private static final int MIN_DYNAMIC_RANGE = 24;
+
+    /**
+     * Buffers shared by all binarizers of one decode thread.
+     */
+    public static final class Workspace {
+        private BitMatrix matrix;
+        private int[] blackPoints = new int[0];
+        private byte[] luminances = new byte[0];
+        private final int[] buckets = new int[LUMINANCE_BUCKETS];
+        private long binarizeNanos;
+
+        /**
+         * Total time spent binarizing rows and matrices with this workspace.
+         */
+        public long getBinarizeNanos() {
+            return binarizeNanos;
+        }
+
+        BitMatrix obtainMatrix(int width, int height) {
+            if (matrix == null || matrix.getWidth() != width
+                    || matrix.getHeight() != height) {
+                matrix = new BitMatrix(width, height);
+            } else {
+                matrix.clear();
+            }
+            return matrix;
+        }
+
+        int[] obtainBlackPoints(int size) {
+            if (blackPoints.length < size) {
+                blackPoints = new int[size];
+            }
+            return blackPoints;
+        }
+
+        byte[] obtainLuminances(int size) {
+            if (luminances.length < size) {
+                luminances = new byte[size];
+            }
+            return luminances;
+        }
+
+        int[] clearBuckets() {
+            for (int x = 0; x < LUMINANCE_BUCKETS; x++) {
+                buckets[x] = 0;
+            }
+            return buckets;
+        }
+    }
+
+    private final Workspace workspace;
+    private BitMatrix matrix;
+
+    public ReusableHybridBinarizer(LuminanceSource source, Workspace workspace) {
+        super(source);
+        this.workspace = workspace;
+    }
+
+    // Applies simple sharpening to the row data to improve performance of the 1D Readers.
+    @Override
+    public BitArray getBlackRow(int y, BitArray row) throws NotFoundException {
+        long start = System.nanoTime();
+        LuminanceSource source = getLuminanceSource();
+        int width = source.getWidth();
+        if (row == null || row.getSize() < width) {
+            row = new BitArray(width);
+        } else {
+            row.clear();
+        }
+
+        int[] localBuckets = workspace.clearBuckets();
+        byte[] localLuminances = source.getRow(y, workspace.obtainLuminances(width));
+        for (int x = 0; x < width; x++) {
+            int pixel = localLuminances[x] & 0xff;
+            localBuckets[pixel >> LUMINANCE_SHIFT]++;
+        }
+        int blackPoint = estimateBlackPoint(localBuckets);
+
+        int left = localLuminances[0] & 0xff;
+        int center = localLuminances[1] & 0xff;
+        for (int x = 1; x < width - 1; x++) {
+            int right = localLuminances[x + 1] & 0xff;
+            // A simple -1 4 -1 box filter with a weight of 2.
+            int luminance = ((center * 4) - left - right) / 2;
+            if (luminance < blackPoint) {
+                row.set(x);
+            }
+            left = center;
+            center = right;
+        }
+        workspace.binarizeNanos += System.nanoTime() - start;
+        return row;
+    }
+
+    /**
+     * Calculates the final BitMatrix once for all requests.
+     */
+    @Override
+    public BitMatrix getBlackMatrix() throws NotFoundException {
+        if (matrix != null) {
+            return matrix;
+        }
+        long start = System.nanoTime();
+        LuminanceSource source = getLuminanceSource();
+        int width = source.getWidth();
+        int height = source.getHeight();
+        if (width >= MINIMUM_DIMENSION && height >= MINIMUM_DIMENSION) {
+            byte[] luminances = source.getMatrix();
+            int subWidth = width >> BLOCK_SIZE_POWER;
+            if ((width & BLOCK_SIZE_MASK) != 0) {
+                subWidth++;
+            }
+            int subHeight = height >> BLOCK_SIZE_POWER;
+            if ((height & BLOCK_SIZE_MASK) != 0) {
+                subHeight++;
+            }
+            int[] blackPoints = workspace.obtainBlackPoints(subWidth * subHeight);
+            calculateBlackPoints(luminances, subWidth, subHeight, width, height, blackPoints);
+
+            BitMatrix newMatrix = workspace.obtainMatrix(width, height);
+            calculateThresholdForBlock(luminances, subWidth, subHeight, width, height, blackPoints, newMatrix);
+            matrix = newMatrix;
+        } else {
+            // If the image is too small, fall back to the global histogram approach.
+            matrix = getGlobalHistogramBlackMatrix(source, width, height);
+        }
+        workspace.binarizeNanos += System.nanoTime() - start;
+        return matrix;
+    }
+
+    @Override
+    public Binarizer createBinarizer(LuminanceSource source) {
+        return new HybridBinarizer(source);
+    }
+
+    // Does not sharpen the data, as this call is intended to only be used by 2D Readers.
+    private BitMatrix getGlobalHistogramBlackMatrix(LuminanceSource source,
+                                                    int width, int height) throws NotFoundException {
+        // Quickly calculates the histogram by sampling four rows from the image.
+        int[] localBuckets = workspace.clearBuckets();
+        byte[] rowLuminances = workspace.obtainLuminances(width);
+        for (int y = 1; y < 5; y++) {
+            int row = height * y / 5;
+            byte[] localLuminances = source.getRow(row, rowLuminances);
+            int right = (width * 4) / 5;
+            for (int x = width / 5; x < right; x++) {
+                int pixel = localLuminances[x] & 0xff;
+                localBuckets[pixel >> LUMINANCE_SHIFT]++;
+            }
+        }
+        int blackPoint = estimateBlackPoint(localBuckets);
+
+        // We delay reading the entire image luminance until the black point estimation succeeds.
+        BitMatrix matrix = workspace.obtainMatrix(width, height);
+        byte[] localLuminances = source.getMatrix();
+        for (int y = 0; y < height; y++) {
+            int offset = y * width;
+            for (int x = 0; x < width; x++) {
+                int pixel = localLuminances[offset + x] & 0xff;
+                if (pixel < blackPoint) {
+                    matrix.set(x, y);
+                }
+            }
+        }
+        return matrix;
+    }
+
+    private static int estimateBlackPoint(int[] buckets) throws NotFoundException {
+        // Find the tallest peak in the histogram.
+        int numBuckets = buckets.length;
+        int maxBucketCount = 0;
+        int firstPeak = 0;
+        int firstPeakSize = 0;
+        for (int x = 0; x < numBuckets; x++) {
+            if (buckets[x] > firstPeakSize) {
+                firstPeak = x;
+                firstPeakSize = buckets[x];
+            }
+            if (buckets[x] > maxBucketCount) {
+                maxBucketCount = buckets[x];
+            }
+        }
+
+        // Find the second-tallest peak which is somewhat far from the tallest peak.
+        int secondPeak = 0;
+        int secondPeakScore = 0;
+        for (int x = 0; x < numBuckets; x++) {
+            int distanceToBiggest = x - firstPeak;
+            // Encourage more distant second peaks by multiplying by square of distance.
+            int score = buckets[x] * distanceToBiggest * distanceToBiggest;
+            if (score > secondPeakScore) {
+                secondPeak = x;
+                secondPeakScore = score;
+            }
+        }
+
+        // Make sure firstPeak corresponds to the black peak.
+        if (firstPeak > secondPeak) {
+            int temp = firstPeak;
+            firstPeak = secondPeak;
+            secondPeak = temp;
+        }
+
+        // If there is too little contrast in the image to pick a meaningful black point, throw rather
+        // than waste time trying to decode the image, and risk false positives.
+        if (secondPeak - firstPeak <= numBuckets / 16) {
+            throw NotFoundException.getNotFoundInstance();
+        }
+
+        // Find a valley between them that is low and closer to the white peak.
+        int bestValley = secondPeak - 1;
+        int bestValleyScore = -1;
+        for (int x = secondPeak - 1; x > firstPeak; x--) {
+            int fromFirst = x - firstPeak;
+            int score = fromFirst * fromFirst * (secondPeak - x) * (maxBucketCount - buckets[x]);
+            if (score > bestValleyScore) {
+                bestValley = x;
+                bestValleyScore = score;
+            }
+        }
+
+        return bestValley << LUMINANCE_SHIFT;
+    }
+
+    /**
+     * For each block in the image, calculate the average black point using a 5x5 grid
+     * of the blocks around it. Also handles the corner cases (fractional blocks are computed based
+     * on the last pixels in the row/column which are also used in the previous block).
+     */
+    private static void calculateThresholdForBlock(byte[] luminances,
+                                                   int subWidth,
+                                                   int subHeight,
+                                                   int width,
+                                                   int height,
+                                                   int[] blackPoints,
+                                                   BitMatrix matrix) {
+        for (int y = 0; y < subHeight; y++) {
+            int yoffset = y << BLOCK_SIZE_POWER;
+            int maxYOffset = height - BLOCK_SIZE;
+            if (yoffset > maxYOffset) {
+                yoffset = maxYOffset;
+            }
+            for (int x = 0; x < subWidth; x++) {
+                int xoffset = x << BLOCK_SIZE_POWER;
+                int maxXOffset = width - BLOCK_SIZE;
+                if (xoffset > maxXOffset) {
+                    xoffset = maxXOffset;
+                }
+                int left = cap(x, 2, subWidth - 3);
+                int top = cap(y, 2, subHeight - 3);
+                int sum = 0;
+                for (int z = -2; z <= 2; z++) {
+                    int rowOffset = (top + z) * subWidth + left;
+                    sum += blackPoints[rowOffset - 2] + blackPoints[rowOffset - 1] + blackPoints[rowOffset]
+                            + blackPoints[rowOffset + 1] + blackPoints[rowOffset + 2];
+                }
+                int average = sum / 25;
+                thresholdBlock(luminances, xoffset, yoffset, average, width, matrix);
+            }
+        }
+    }
+
+    private static int cap(int value, int min, int max) {
+        return value < min ? min : value > max ? max : value;
+    }
+
+    /**
+     * Applies a single threshold to a block of pixels.
+     */
+    private static void thresholdBlock(byte[] luminances,
+                                       int xoffset,
+                                       int yoffset,
+                                       int threshold,
+                                       int stride,
+                                       BitMatrix matrix) {
+        for (int y = 0, offset = yoffset * stride + xoffset; y < BLOCK_SIZE; y++, offset += stride) {
+            for (int x = 0; x < BLOCK_SIZE; x++) {
+                // Comparison needs to be <= so that black == 0 pixels are black even if the threshold is 0.
+                if ((luminances[offset + x] & 0xFF) <= threshold) {
+                    matrix.set(xoffset + x, yoffset + y);
+                }
+            }
+        }
+    }
+
+    /**
+     * Calculates a single black point for each block of pixels and saves it away,
+     * row by row, into blackPoints.
+     */
+    private static void calculateBlackPoints(byte[] luminances,
+                                             int subWidth,
+                                             int subHeight,
+                                             int width,
+                                             int height,
+                                             int[] blackPoints) {
+        for (int y = 0; y < subHeight; y++) {
+            int yoffset = y << BLOCK_SIZE_POWER;
+            int maxYOffset = height - BLOCK_SIZE;
+            if (yoffset > maxYOffset) {
+                yoffset = maxYOffset;
+            }
+            for (int x = 0; x < subWidth; x++) {
+                int xoffset = x << BLOCK_SIZE_POWER;
+                int maxXOffset = width - BLOCK_SIZE;
+                if (xoffset > maxXOffset) {
+                    xoffset = maxXOffset;
+                }
+                int sum = 0;
+                int min = 0xFF;
+                int max = 0;
+                for (int yy = 0, offset = yoffset * width + xoffset; yy < BLOCK_SIZE; yy++, offset += width) {
+                    for (int xx = 0; xx < BLOCK_SIZE; xx++) {
+                        int pixel = luminances[offset + xx] & 0xFF;
+                        sum += pixel;
+                        // still looking for good contrast
+                        if (pixel < min) {
+                            min = pixel;
+                        }
+                        if (pixel > max) {
+                            max = pixel;
+                        }
+                    }
+                    // short-circuit min/max tests once dynamic range is met
+                    if (max - min > MIN_DYNAMIC_RANGE) {
+                        // finish the rest of the rows quickly
+                        for (yy++, offset += width; yy < BLOCK_SIZE; yy++, offset += width) {
+                            for (int xx = 0; xx < BLOCK_SIZE; xx++) {
+                                sum += luminances[offset + xx] & 0xFF;
+                            }
+                        }
+                    }
+                }
+
+                // The default estimate is the average of the values in the block.
+                int average = sum >> (BLOCK_SIZE_POWER * 2);
+                if (max - min <= MIN_DYNAMIC_RANGE) {
+                    // If variation within the block is low, assume this is a block with only light or only
+                    // dark pixels. In that case we do not want to use the average, as it would divide this
+                    // low contrast area into black and white pixels, essentially creating data out of noise.
+                    //
+                    // The default assumption is that the block is light/background. Since no estimate for
+                    // the level of dark pixels exists locally, use half the min for the block.
+                    average = min / 2;
+
+                    if (y > 0 && x > 0) {
+                        // Correct the "white background" assumption for blocks that have neighbors by comparing
+                        // the pixels in this block to the previously calculated black points. This is based on
+                        // the fact that dark barcode symbology is always surrounded by some amount of light
+                        // background for which reasonable black point estimates were made. The bp estimated at
+                        // the boundaries is used for the interior.
+
+                        // The (min < bp) is arbitrary but works better than other heuristics that were tried.
+                        int averageNeighborBlackPoint = (blackPoints[(y - 1) * subWidth + x]
+                                + (2 * blackPoints[y * subWidth + x - 1])
+                                + blackPoints[(y - 1) * subWidth + x - 1]) / 4;
+                        if (min < averageNeighborBlackPoint) {
+                            average = averageNeighborBlackPoint;
+                        }
+                    }
+                }
+                blackPoints[y * subWidth + x] = average;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,178 @@
+package com.liangyn.zxing;
+
+import com.google.zxing.ResultPoint;
+
+/**
+ * 解码区域跟踪：根据上一帧的结果点，只在条码周围留有余量的小范围内解码
+ * 说明：坐标都相对于完整的解码区域（扫描框）。识别成功时以结果点的外接矩形为中心，
+ * 没有识别到但已找到若干候选点（如 QR 码的定位图形）时以候选点为中心；
+ * 跟踪中的帧没有识别到条码时放弃跟踪，下一帧恢复解码完整区域。
+ * 跟踪区域接近完整区域时不跟踪。每个解码线程一个实例，无需同步。
+ */
+final class RoiTracker {
+
+    /**
+     * 至少找到多少个候选点才开始跟踪
+     */
+    private static final int MIN_CANDIDATE_POINTS = 3;
+
+    /**
+     * 外接矩形每边扩展的余量至少为多少像素，见 {@link #track()}
+     */
+    private static final int MIN_PADDING = 64;
+    private static final int MIN_SIZE = 64;
+
+    /**
+     * 跟踪区域的宽高取该值的整数倍，见 {@link #stepSize}
+     */
+    private static final int SIZE_STEP = 32;
+
+    /**
+     * 跟踪区域面积超过完整区域的百分之多少时直接解码完整区域
+     */
+    private static final int MAX_AREA_PERCENT = 75;
+
+    private int fullWidth;
+    private int fullHeight;
+    private boolean tracking;
+    private int left;
+    private int top;
+    private int width;
+    private int height;
+
+    private int candidates;
+    private float minX;
+    private float minY;
+    private float maxX;
+    private float maxY;
+
+    /**
+     * 本帧是否只解码跟踪区域；完整区域的尺寸改变时放弃跟踪
+     */
+    boolean isTracking(int fullWidth, int fullHeight) {
+        if (fullWidth != this.fullWidth || fullHeight != this.fullHeight) {
+            this.fullWidth = fullWidth;
+            this.fullHeight = fullHeight;
+            tracking = false;
+        }
+        return tracking;
+    }
+
+    int getLeft() {
+        return left;
+    }
+
+    int getTop() {
+        return top;
+    }
+
+    int getWidth() {
+        return width;
+    }
+
+    int getHeight() {
+        return height;
+    }
+
+    /**
+     * 开始解码一帧，清空候选点
+     */
+    void beginFrame() {
+        candidates = 0;
+    }
+
+    /**
+     * 解码过程中找到的候选点
+     */
+    void addCandidate(float x, float y) {
+        if (candidates == 0) {
+            minX = maxX = x;
+            minY = maxY = y;
+        } else {
+            minX = Math.min(minX, x);
+            maxX = Math.max(maxX, x);
+            minY = Math.min(minY, y);
+            maxY = Math.max(maxY, y);
+        }
+        candidates++;
+    }
+
+    /**
+     * 一帧解码结束，确定下一帧的跟踪区域
+     *
+     * @param resultPoints 识别成功时的结果点，没有识别到时为 null
+     */
+    void endFrame(ResultPoint[] resultPoints) {
+        if (resultPoints != null && resultPoints.length > 0) {
+            candidates = 0;
+            for (ResultPoint point : resultPoints) {
+                if (point != null) {
+                    addCandidate(point.getX(), point.getY());
+                }
+            }
+        } else if (tracking || candidates < MIN_CANDIDATE_POINTS) {
+            tracking = false;
+            return;
+        }
+        if (candidates == 0) {
+            tracking = false;
+            return;
+        }
+        track();
+    }
+
+    void reset() {
+        tracking = false;
+        candidates = 0;
+    }
+
+    private void track() {
+        int boxWidth = (int) (maxX - minX);
+        int boxHeight = (int) (maxY - minY);
+        // 余量取外接矩形的较长边（至少 MIN_PADDING），即条码在两帧之间可以移动一整个自身的尺寸：
+        // 结果点多在条码内部（QR 码定位图形的中心距边缘 3.5 个模块，一维码只有扫描线上的两点），
+        // 外接矩形比条码本身小，还要留出静区；手持抖动在 30fps 下每帧可达条码尺寸的几分之一，
+        // 余量更小时跟踪频繁失败，每次失败都要多解码一次完整区域，反而更慢
+        int padding = Math.max(Math.max(boxWidth, boxHeight), MIN_PADDING);
+        int roiLeft = (int) minX - padding;
+        int roiTop = (int) minY - padding;
+        int roiRight = (int) maxX + padding;
+        int roiBottom = (int) maxY + padding;
+        if (roiRight - roiLeft < MIN_SIZE) {
+            int grow = (MIN_SIZE - (roiRight - roiLeft) + 1) / 2;
+            roiLeft -= grow;
+            roiRight += grow;
+        }
+        if (roiBottom - roiTop < MIN_SIZE) {
+            int grow = (MIN_SIZE - (roiBottom - roiTop) + 1) / 2;
+            roiTop -= grow;
+            roiBottom += grow;
+        }
+        // 尺寸不变时靠近边缘的区域平移回完整区域内，而不是截短
+        width = stepSize(roiRight - roiLeft, width, fullWidth);
+        height = stepSize(roiBottom - roiTop, height, fullHeight);
+        left = clamp((roiLeft + roiRight - width) / 2, fullWidth - width);
+        top = clamp((roiTop + roiBottom - height) / 2, fullHeight - height);
+        tracking = width > 0 && height > 0
+                && width * height * 100 < fullWidth * fullHeight * MAX_AREA_PERCENT;
+    }
+
+    /**
+     * 跟踪区域的边长：needed 向上取 SIZE_STEP 的整数倍，不超过 full
+     * 说明：解码线程按长度复用裁剪和缩小用的缓冲（{@link FrameBufferPool}），
+     * 手持抖动使外接矩形每帧差几个像素，不取整时几乎每帧都要分配新的缓冲并挤掉完整区域的缓冲；
+     * 比上一帧的边长 previous 小不到一档时沿用 previous，避免在两档之间来回切换。
+     */
+    private static int stepSize(int needed, int previous, int full) {
+        int size = (needed + SIZE_STEP - 1) / SIZE_STEP * SIZE_STEP;
+        if (previous >= needed && previous <= size + SIZE_STEP) {
+            size = previous;
+        }
+        return Math.min(size, full);
+    }
+
+    private static int clamp(int value, int max) {
+        return Math.max(0, Math.min(value, max));
+    }
+
+}
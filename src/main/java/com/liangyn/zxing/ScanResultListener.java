@@ -0,0 +1,17 @@
+package com.liangyn.zxing;
+
+import com.google.zxing.Result;
+
+/**
+ * 连续扫描模式下接收识别结果，见 {@link Intents.Scan#CONTINUOUS_MODE}
+ * 说明：在主线程中回调，重复的条码已按去重窗口过滤。
+ */
+public interface ScanResultListener {
+
+    /**
+     * @param result    新识别到的条码
+     * @param thumbnail 扫描框区域的灰度数据，可能为 null；批量模式下同一帧的结果共用一个
+     */
+    void onScanResult(Result result, BarcodeThumbnail thumbnail);
+
+}
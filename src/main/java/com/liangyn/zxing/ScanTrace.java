@@ -0,0 +1,216 @@
+package com.liangyn.zxing;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 扫码启动过程的耗时追踪：从 onResume 到第一个识别结果
+ * 说明：打开相机、设置参数、启动预览、解码线程启动、对焦、解码等各阶段记录为 span，
+ * 可导出为 Chrome trace 格式的 JSON（chrome://tracing 或 Perfetto 打开）。
+ * 同一时间只有一个追踪处于活动状态，未调用 {@link #start()} 时各记录方法不做任何事。
+ * 可在任意线程中调用。
+ */
+public final class ScanTrace {
+
+    /**
+     * 最多记录的事件数，连续扫描时超出的事件直接丢弃
+     */
+    private static final int MAX_EVENTS = 4096;
+
+    private static final char PHASE_COMPLETE = 'X';
+    private static final char PHASE_INSTANT = 'i';
+
+    private static volatile ScanTrace active;
+
+    private final long originNanos = System.nanoTime();
+    private final List<Event> events = new ArrayList<Event>();
+    /**
+     * 线程 id 与线程名，导出为 thread_name 元数据
+     */
+    private final Map<Long, String> threadNames = new LinkedHashMap<Long, String>();
+
+    private ScanTrace() {
+    }
+
+    /**
+     * 开始新的追踪，之前的追踪不再接收事件
+     */
+    public static ScanTrace start() {
+        ScanTrace trace = new ScanTrace();
+        active = trace;
+        return trace;
+    }
+
+    /**
+     * 停止追踪，返回停止前的追踪，没有时为 null
+     */
+    public static ScanTrace stop() {
+        ScanTrace trace = active;
+        active = null;
+        return trace;
+    }
+
+    /**
+     * 当前活动的追踪，没有时为 null
+     */
+    public static ScanTrace current() {
+        return active;
+    }
+
+    /**
+     * 记录一个阶段的开始时间
+     *
+     * @return 传给 {@link #end(String, long)} 的开始时间，未在追踪时为 0
+     */
+    public static long begin() {
+        return active != null ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * 记录一个从 begin 到现在的阶段，begin 为 0 时忽略
+     */
+    public static void end(String name, long begin) {
+        ScanTrace trace = active;
+        if (trace != null && begin != 0L) {
+            trace.add(name, PHASE_COMPLETE, begin, System.nanoTime() - begin);
+        }
+    }
+
+    /**
+     * 记录一个时间点，例如第一帧到达
+     */
+    public static void instant(String name) {
+        ScanTrace trace = active;
+        if (trace != null) {
+            trace.add(name, PHASE_INSTANT, System.nanoTime(), 0L);
+        }
+    }
+
+    private synchronized void add(String name, char phase, long startNanos, long durationNanos) {
+        // 开始于本次追踪之前的阶段属于上一次追踪
+        if (events.size() >= MAX_EVENTS || startNanos < originNanos) {
+            return;
+        }
+        Thread thread = Thread.currentThread();
+        long tid = thread.getId();
+        if (!threadNames.containsKey(tid)) {
+            threadNames.put(tid, thread.getName());
+        }
+        events.add(new Event(name, phase, startNanos - originNanos, durationNanos, tid));
+    }
+
+    /**
+     * 已记录的事件数
+     */
+    public synchronized int size() {
+        return events.size();
+    }
+
+    /**
+     * 以 Chrome trace 格式（JSON Object Format）写出，时间单位为微秒
+     */
+    public synchronized void writeTo(Writer writer) throws IOException {
+        writer.write("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[");
+        boolean first = true;
+        for (Map.Entry<Long, String> entry : threadNames.entrySet()) {
+            if (!first) {
+                writer.write(',');
+            }
+            first = false;
+            writer.write("\n{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":");
+            writer.write(String.valueOf(entry.getKey()));
+            writer.write(",\"args\":{\"name\":");
+            writeString(writer, entry.getValue());
+            writer.write("}}");
+        }
+        for (Event event : events) {
+            if (!first) {
+                writer.write(',');
+            }
+            first = false;
+            writer.write("\n{\"name\":");
+            writeString(writer, event.name);
+            writer.write(",\"cat\":\"scan\",\"ph\":\"");
+            writer.write(event.phase);
+            writer.write("\",\"ts\":");
+            writeMicros(writer, event.startNanos);
+            if (event.phase == PHASE_COMPLETE) {
+                writer.write(",\"dur\":");
+                writeMicros(writer, event.durationNanos);
+            } else {
+                writer.write(",\"s\":\"t\"");
+            }
+            writer.write(",\"pid\":1,\"tid\":");
+            writer.write(String.valueOf(event.tid));
+            writer.write('}');
+        }
+        writer.write("\n]}\n");
+    }
+
+    /**
+     * 写出到文件，已存在时覆盖
+     */
+    public void writeTo(String path) throws IOException {
+        Writer writer = new OutputStreamWriter(new FileOutputStream(path), "UTF-8");
+        try {
+            writeTo(writer);
+        } finally {
+            writer.close();
+        }
+    }
+
+    private static void writeMicros(Writer writer, long nanos) throws IOException {
+        // 保留到 0.001 微秒，Chrome trace 接受小数
+        writer.write(String.valueOf(nanos / 1000));
+        long fraction = nanos % 1000;
+        if (fraction != 0) {
+            writer.write('.');
+            if (fraction < 100) {
+                writer.write('0');
+            }
+            if (fraction < 10) {
+                writer.write('0');
+            }
+            writer.write(String.valueOf(fraction));
+        }
+    }
+
+    private static void writeString(Writer writer, String value) throws IOException {
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                writer.write('\\');
+                writer.write(c);
+            } else if (c < 0x20) {
+                writer.write(String.format("\\u%04x", (int) c));
+            } else {
+                writer.write(c);
+            }
+        }
+        writer.write('"');
+    }
+
+    private static final class Event {
+        final String name;
+        final char phase;
+        final long startNanos;
+        final long durationNanos;
+        final long tid;
+
+        Event(String name, char phase, long startNanos, long durationNanos, long tid) {
+            this.name = name;
+            this.phase = phase;
+            this.startNanos = startNanos;
+            this.durationNanos = durationNanos;
+            this.tid = tid;
+        }
+    }
+
+}
@@ -54,7 +54,7 @@ public final class ViewFinderView extends View {
     private final int scanTextSize;
     private Bitmap resultBitmap;
     private int scannerAlpha;
-    private Collection<ResultPoint> possibleResultPoints;
+    private volatile Collection<ResultPoint> possibleResultPoints;
     private Collection<ResultPoint> lastPossibleResultPoints;
     /**
      * 四个绿色边角对应的长度
@@ -127,22 +127,28 @@ public final class ViewFinderView extends View {
 
             Collection<ResultPoint> currentPossible = possibleResultPoints;
             Collection<ResultPoint> currentLast = lastPossibleResultPoints;
-            if (currentPossible.isEmpty()) {
-                lastPossibleResultPoints = null;
-            } else {
-                possibleResultPoints = new HashSet<ResultPoint>(8);
-                lastPossibleResultPoints = currentPossible;
-                paint.setAlpha(OPAQUE);
-                paint.setColor(resultPointColor);
-                for (ResultPoint point : currentPossible) {
-                    canvas.drawCircle(frame.left + point.getX(), frame.top + point.getY(), 6.0f, paint);
+            // 多个解码线程会同时添加可能的结果点
+            synchronized (currentPossible) {
+                if (currentPossible.isEmpty()) {
+                    lastPossibleResultPoints = null;
+                } else {
+                    possibleResultPoints = new HashSet<ResultPoint>(8);
+                    lastPossibleResultPoints = currentPossible;
+                    paint.setAlpha(OPAQUE);
+                    paint.setColor(resultPointColor);
+                    for (ResultPoint point : currentPossible) {
+                        canvas.drawCircle(frame.left + point.getX(), frame.top + point.getY(), 6.0f, paint);
+                    }
                 }
             }
             if (currentLast != null) {
                 paint.setAlpha(OPAQUE / 2);
                 paint.setColor(resultPointColor);
-                for (ResultPoint point : currentLast) {
-                    canvas.drawCircle(frame.left + point.getX(), frame.top + point.getY(), 3.0f, paint);
+                // 交换前已取得旧集合的解码线程仍可能向其中添加结果点
+                synchronized (currentLast) {
+                    for (ResultPoint point : currentLast) {
+                        canvas.drawCircle(frame.left + point.getX(), frame.top + point.getY(), 3.0f, paint);
+                    }
                 }
             }
 
@@ -169,7 +175,10 @@ public final class ViewFinderView extends View {
     }
 
     public void addPossibleResultPoint(ResultPoint point) {
-        possibleResultPoints.add(point);
+        Collection<ResultPoint> points = possibleResultPoints;
+        synchronized (points) {
+            points.add(point);
+        }
     }
 
 }
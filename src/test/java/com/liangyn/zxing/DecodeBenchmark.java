@@ -0,0 +1,157 @@
+package com.liangyn.zxing;
+
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.ReaderException;
+import com.google.zxing.Result;
+import com.google.zxing.common.HybridBinarizer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.util.Hashtable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 预览帧解码的基准测试：测试资源中的 NV21 帧（见 {@link Nv21Corpus}），按分辨率和条码类型分别测量
+ * 说明：original* 是原 DecodeHandler 的做法：逐像素旋转整帧、按扫描框裁剪、HybridBinarizer、
+ * MultiFormatReader，每帧互不相关。engine* 经 {@link DecodeEngine} 旋转裁剪、二值化和解码，
+ * 以静态图片模式运行，不跟踪条码位置、不沿用上一帧的缩小倍数和格式分组，与 original* 同为冷启动的完整解码；
+ * tracked* 与 DecodeHandler 相同，以预览帧模式反复解码同一帧，相当于用户一直对准同一个条码，
+ * 从第二帧起只解码条码周围的区域、从上次成功的缩小倍数和格式分组开始，是连续扫描的最好情况。
+ * *Fps 以吞吐量（每秒帧数）计，*Latency 以采样模式给出 p50/p99，
+ * main 方法附带 GC 分析器，输出每帧分配的字节数（gc.alloc.rate.norm）和分配速率。
+ */
+@State(Scope.Thread)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecodeBenchmark {
+
+    @Param({"640x480", "1280x720", "1920x1080"})
+    public String size;
+
+    @Param({"QR_CODE", "EAN_13", "CODE_128"})
+    public String format;
+
+    private byte[] data;
+    private int width;
+    private int height;
+    private int[] crop;
+    private DecodeEngine engine;
+    private DecodeEngine trackedEngine;
+    private MultiFormatReader reader;
+
+    @Setup
+    public void setUp() throws IOException {
+        data = Nv21Corpus.load(format, size);
+        width = Nv21Corpus.width(size);
+        height = Nv21Corpus.height(size);
+        crop = Nv21Corpus.crop(width, height);
+        engine = new DecodeEngine(null, null, null);
+        engine.setStillImageMode(true);
+        trackedEngine = new DecodeEngine(null, null, null);
+        reader = new MultiFormatReader();
+        Hashtable<DecodeHintType, Object> hints = new Hashtable<DecodeHintType, Object>(3);
+        hints.put(DecodeHintType.POSSIBLE_FORMATS, DecodeFormats.defaultDecodeFormats());
+        reader.setHints(hints);
+        // 两种做法都必须识别出条码，否则测得的是失败路径的耗时
+        String expected = Nv21Corpus.text(format);
+        Result result = engineDecode(engine);
+        if (result == null || !expected.equals(result.getText())) {
+            throw new IllegalStateException("DecodeEngine did not decode " + format + " " + size);
+        }
+        result = engineDecode(trackedEngine);
+        if (result == null || !expected.equals(result.getText())) {
+            throw new IllegalStateException("Tracked DecodeEngine did not decode " + format + " "
+                    + size);
+        }
+        result = originalDecode();
+        if (result == null || !expected.equals(result.getText())) {
+            throw new IllegalStateException("Original path did not decode " + format + " " + size);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public Result engineFps() {
+        return engineDecode(engine);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Result engineLatency() {
+        return engineDecode(engine);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public Result trackedFps() {
+        return engineDecode(trackedEngine);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Result trackedLatency() {
+        return engineDecode(trackedEngine);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public Result originalFps() {
+        return originalDecode();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Result originalLatency() {
+        return originalDecode();
+    }
+
+    private Result engineDecode(DecodeEngine engine) {
+        return engine.decode(data, width, height, 90, crop[0], crop[1], crop[2], crop[3]);
+    }
+
+    private Result originalDecode() {
+        byte[] rotatedData = new byte[data.length];
+        RotationFixtures.rotate90(data, width, height, rotatedData);
+        PlanarYUVLuminanceSource source = new PlanarYUVLuminanceSource(rotatedData, height,
+                width, crop[0], crop[1], crop[2], crop[3]);
+        try {
+            return reader.decodeWithState(new BinaryBitmap(new HybridBinarizer(source)));
+        } catch (ReaderException re) {
+            return null;
+        } finally {
+            reader.reset();
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(DecodeBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+
+}
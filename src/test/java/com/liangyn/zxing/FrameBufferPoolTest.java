@@ -0,0 +1,149 @@
+package com.liangyn.zxing;
+
+import com.google.zxing.Result;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * 复用缓冲池中的数组旋转预览帧，结果与原来每帧新建数组的旋转循环一致（见 {@link RotationFixtures}）
+ */
+public class FrameBufferPoolTest {
+
+    private final Random random = new Random(RotationFixtures.SEED);
+
+    @Test
+    public void pooledRotationMatchesOriginalLoop() {
+        FrameBufferPool pool = new FrameBufferPool();
+        int[][] sizes = {{640, 480}, {1280, 720}, {176, 144}, {33, 17}};
+        for (int[] size : sizes) {
+            byte[] data = randomFrame(size[0], size[1]);
+            byte[] expected = RotationFixtures.rotate90(data, size[0], size[1]);
+            byte[] rotated = pool.obtain(size[0] * size[1]);
+            PlanarYUVRotator.rotate(data, size[0], size[1], 90, rotated);
+            assertArrayEquals(size[0] + "x" + size[1], expected, rotated);
+        }
+    }
+
+    /**
+     * 同一尺寸的帧每次取到同一个数组，上一帧的内容被完整覆盖
+     */
+    @Test
+    public void repeatedFramesReuseTheSameBuffer() {
+        FrameBufferPool pool = new FrameBufferPool();
+        int width = 320;
+        int height = 240;
+        byte[] first = null;
+        for (int i = 0; i < 5; i++) {
+            byte[] data = randomFrame(width, height);
+            byte[] rotated = pool.obtain(width * height);
+            if (first == null) {
+                first = rotated;
+            } else {
+                assertSame(first, rotated);
+            }
+            PlanarYUVRotator.rotate(data, width, height, 90, rotated);
+            assertArrayEquals("frame " + i, RotationFixtures.rotate90(data, width, height), rotated);
+        }
+    }
+
+    /**
+     * 扫描框裁剪与原来先旋转整帧、再取扫描框的结果一致；完整区域和跟踪区域交替时各用各的缓冲
+     */
+    @Test
+    public void pooledCropMatchesOriginalLoop() {
+        FrameBufferPool pool = new FrameBufferPool();
+        int width = 640;
+        int height = 480;
+        int[][] crops = {{60, 180, 360, 280}, {100, 200, 120, 96}};
+        byte[][] buffers = new byte[crops.length][];
+        for (int i = 0; i < 6; i++) {
+            int[] crop = crops[i % crops.length];
+            byte[] data = randomFrame(width, height);
+            byte[] cropData = pool.obtain(crop[2] * crop[3]);
+            if (buffers[i % crops.length] == null) {
+                buffers[i % crops.length] = cropData;
+            } else {
+                assertSame(buffers[i % crops.length], cropData);
+            }
+            PlanarYUVLuminanceSource source = PlanarYUVLuminanceSource.fromRotatedCrop(data,
+                    width, height, 90, crop[0], crop[1], crop[2], crop[3], cropData);
+            byte[] expected = RotationFixtures.crop(RotationFixtures.rotate90(data, width, height),
+                    height,
+                    crop[0], crop[1], crop[2], crop[3]);
+            assertArrayEquals("frame " + i, expected, source.getMatrix());
+        }
+        assertNotSame(buffers[0], buffers[1]);
+    }
+
+    /**
+     * DecodeEngine 逐帧解码时裁剪区域一直写入同一个缓冲，内容与原来的旋转、裁剪一致，
+     * 识别结果与每帧新建引擎时相同
+     * 说明：预览帧模式下格式调度只每隔几帧探测别的格式，这里用同一个 QR 码、亮度不同的帧
+     */
+    @Test
+    public void engineReusesCropBufferAcrossFrames() throws Exception {
+        String size = "640x480";
+        int width = Nv21Corpus.width(size);
+        int height = Nv21Corpus.height(size);
+        int[] crop = Nv21Corpus.crop(width, height);
+        byte[] frame = Nv21Corpus.load("QR_CODE", size);
+        DecodeEngine engine = new DecodeEngine(null, null, null);
+        // 跟踪区域会改变裁剪尺寸，这里只看完整扫描框的缓冲
+        engine.setRoiTracking(false);
+        int[] offsets = {0, -40, 30, 0};
+        byte[] cropData = null;
+        for (int offset : offsets) {
+            byte[] data = brighten(frame, offset);
+            Result expected = new DecodeEngine(null, null, null).decode(data, width, height,
+                    90, crop[0], crop[1], crop[2], crop[3]);
+            Result result = engine.decode(data, width, height, 90,
+                    crop[0], crop[1], crop[2], crop[3]);
+            String name = "offset " + offset;
+            assertNotNull(name, result);
+            assertEquals(name, expected.getText(), result.getText());
+            assertEquals(name, expected.getBarcodeFormat(), result.getBarcodeFormat());
+
+            byte[] matrix = engine.getLastSource().getMatrix();
+            if (cropData == null) {
+                cropData = matrix;
+            } else {
+                assertSame(name, cropData, matrix);
+            }
+            assertArrayEquals(name, RotationFixtures.crop(
+                    RotationFixtures.rotate90(data, width, height), height,
+                    crop[0], crop[1], crop[2], crop[3]), matrix);
+        }
+    }
+
+    @Test
+    public void clearDropsBuffers() {
+        FrameBufferPool pool = new FrameBufferPool();
+        byte[] buffer = pool.obtain(1024);
+        pool.clear();
+        assertNotSame(buffer, pool.obtain(1024));
+    }
+
+    /**
+     * Y 平面每个像素加 offset（截断到 0..255）后的副本
+     */
+    private static byte[] brighten(byte[] frame, int offset) {
+        byte[] data = frame.clone();
+        for (int i = 0; i < data.length * 2 / 3; i++) {
+            data[i] = (byte) Math.max(0, Math.min(255, (data[i] & 0xff) + offset));
+        }
+        return data;
+    }
+
+    private byte[] randomFrame(int width, int height) {
+        return RotationFixtures.randomFrame(random, width, height);
+    }
+
+}
@@ -0,0 +1,99 @@
+package com.liangyn.zxing;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 扫描界面暂停后重新录制时追加到同一文件，不覆盖之前录下的帧
+ */
+public class FrameRecorderTest {
+
+    private static final int WIDTH = 8;
+    private static final int HEIGHT = 4;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void secondSessionAppends() throws IOException {
+        File file = folder.newFile("frames.nv21");
+        record(file, 0, 3);
+        record(file, 3, 2);
+        assertFrames(file, 5);
+    }
+
+    /**
+     * 上次录制被中断时末尾不完整的帧被截掉，新的帧仍能完整读出
+     */
+    @Test
+    public void truncatedTailIsReplaced() throws IOException {
+        File file = folder.newFile("frames.nv21");
+        record(file, 0, 2);
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(raf.length() - 5);
+        } finally {
+            raf.close();
+        }
+        record(file, 1, 2);
+        assertFrames(file, 3);
+    }
+
+    @Test(expected = IOException.class)
+    public void refusesOtherFiles() throws IOException {
+        File file = folder.newFile("notes.txt");
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write("not a recording".getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+        new FrameRecorder(file).close();
+    }
+
+    /**
+     * 录制 count 帧，第 i 帧的数据全部为 first + i，时间戳为 first + i
+     */
+    private static void record(File file, int first, int count) throws IOException {
+        FrameRecorder recorder = new FrameRecorder(file, count);
+        try {
+            for (int i = first; i < first + count; i++) {
+                byte[] data = new byte[WIDTH * HEIGHT * 3 / 2];
+                Arrays.fill(data, (byte) i);
+                recorder.record(data, WIDTH, HEIGHT, 17, i, 0, 0, HEIGHT, WIDTH);
+            }
+        } finally {
+            recorder.close();
+        }
+    }
+
+    /**
+     * 帧依次为 0, 1, ..., count - 1
+     */
+    private static void assertFrames(File file, int count) throws IOException {
+        List<FrameRecording.Frame> frames = FrameRecording.open(file).getFrames();
+        assertEquals(count, frames.size());
+        for (int i = 0; i < count; i++) {
+            FrameRecording.Frame frame = frames.get(i);
+            assertEquals(i, frame.getTimestampNanos());
+            assertEquals(WIDTH, frame.getWidth());
+            byte[] data = new byte[frame.getData().remaining()];
+            frame.getData().duplicate().get(data);
+            assertEquals(WIDTH * HEIGHT * 3 / 2, data.length);
+            for (byte value : data) {
+                assertEquals(i, value);
+            }
+        }
+    }
+
+}
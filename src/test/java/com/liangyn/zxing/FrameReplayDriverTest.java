@@ -0,0 +1,53 @@
+package com.liangyn.zxing;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 用基准测试的预览帧回放一遍，确认在 CI 中压测时回放能正常结束
+ */
+public class FrameReplayDriverTest {
+
+    private static final String SIZE = "640x480";
+    private static final int FRAMES = 5;
+
+    @Test(timeout = 30000)
+    public void replaysCorpusFrames() throws Exception {
+        ReplayFrameSource source = corpusSource();
+        FrameReplayDriver.Report report = new FrameReplayDriver(null, null, 2).run(source, 0);
+        assertEquals(FRAMES, report.getFramesDelivered());
+        assertEquals(0, report.getSourceDropped());
+        // 调度线程在解码线程都忙时会丢掉过时的帧，识别成功的帧数只能与送达的帧数比较
+        long decoded = report.getFramesSucceeded();
+        assertTrue(report.toString(), decoded > 0 && decoded <= FRAMES);
+    }
+
+    /**
+     * 解码抛出的异常使回放失败，而不是卡在等待解码结果上
+     */
+    @Test(timeout = 30000, expected = IllegalStateException.class)
+    public void decodeErrorFailsTheRun() throws Exception {
+        FrameReplayDriver driver = new FrameReplayDriver(null, null, 1);
+        driver.setRotation(45);
+        driver.run(corpusSource(), 0);
+    }
+
+    private static ReplayFrameSource corpusSource() throws Exception {
+        byte[] data = Nv21Corpus.load("QR_CODE", SIZE);
+        List<ByteBuffer> frames = new ArrayList<ByteBuffer>(FRAMES);
+        for (int i = 0; i < FRAMES; i++) {
+            frames.add(ByteBuffer.wrap(data));
+        }
+        ReplayFrameSource source = new ReplayFrameSource(Nv21Corpus.width(SIZE),
+                Nv21Corpus.height(SIZE), 30f, frames);
+        source.setLoop(false);
+        return source;
+    }
+
+}
@@ -0,0 +1,189 @@
+package com.liangyn.zxing;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.MultiFormatWriter;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 基准测试用的 NV21 预览帧，位于测试资源 corpus/ 下，每种条码、每种分辨率一帧
+ * 说明：帧为横屏的相机原始方向，条码位于顺时针旋转 90 度后的扫描框内（1080x1920 屏幕、3 倍密度），
+ * 带光照渐变、轻微模糊和纹理。文件名为 格式_宽x高.nv21.gz，内容为 gzip 压缩的完整 NV21 数据。
+ * 运行 main 方法重新生成：java ... com.liangyn.zxing.Nv21Corpus src/test/resources/corpus
+ */
+final class Nv21Corpus {
+
+    static final String[] SIZES = {"640x480", "1280x720", "1920x1080"};
+    static final String[] FORMATS = {"QR_CODE", "EAN_13", "CODE_128"};
+
+    /**
+     * 生成帧时所用的屏幕，与 FrameReplayDriver 的默认值一致
+     */
+    static final int SCREEN_WIDTH = 1080;
+    static final int SCREEN_HEIGHT = 1920;
+    static final float DENSITY = 3f;
+
+    private static final String QR_CODE_TEXT = "https://github.com/zxing/zxing/wiki/Scanning";
+    private static final String EAN_13_TEXT = "6901234567892";
+    private static final String CODE_128_TEXT = "2016101700420042";
+
+    private Nv21Corpus() {
+    }
+
+    static int width(String size) {
+        return Integer.parseInt(size.substring(0, size.indexOf('x')));
+    }
+
+    static int height(String size) {
+        return Integer.parseInt(size.substring(size.indexOf('x') + 1));
+    }
+
+    /**
+     * 帧中条码的内容
+     */
+    static String text(String format) {
+        switch (BarcodeFormat.valueOf(format)) {
+            case QR_CODE:
+                return QR_CODE_TEXT;
+            case EAN_13:
+                return EAN_13_TEXT;
+            case CODE_128:
+                return CODE_128_TEXT;
+            default:
+                throw new IllegalArgumentException("No corpus frames for " + format);
+        }
+    }
+
+    /**
+     * 扫描框在旋转后的帧中的位置：左、上、宽、高
+     */
+    static int[] crop(int width, int height) {
+        return FrameReplayDriver.viewfinderCrop(height, width, SCREEN_WIDTH, SCREEN_HEIGHT,
+                DENSITY);
+    }
+
+    static byte[] load(String format, String size) throws IOException {
+        String name = "corpus/" + format + "_" + size + ".nv21.gz";
+        InputStream in = Nv21Corpus.class.getClassLoader().getResourceAsStream(name);
+        if (in == null) {
+            throw new IOException("Missing test resource " + name);
+        }
+        try {
+            InputStream gzip = new GZIPInputStream(in);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = gzip.read(buffer)) > 0) {
+                out.write(buffer, 0, read);
+            }
+            byte[] data = out.toByteArray();
+            if (data.length != width(size) * height(size) * 3 / 2) {
+                throw new IOException(name + " is not a " + size + " NV21 frame");
+            }
+            return data;
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * 绘制一帧：条码在扫描框中居中，二维码占扫描框高度的 80%，一维码占宽度的 85%
+     */
+    static byte[] render(String format, String size) throws WriterException {
+        int width = width(size);
+        int height = height(size);
+        // 先按竖屏（旋转后）的坐标绘制
+        int rotatedWidth = height;
+        int rotatedHeight = width;
+        int[] crop = crop(width, height);
+        BarcodeFormat barcodeFormat = BarcodeFormat.valueOf(format);
+        boolean twoD = barcodeFormat == BarcodeFormat.QR_CODE;
+        int codeWidth = twoD ? crop[3] * 4 / 5 : crop[2] * 17 / 20;
+        int codeHeight = twoD ? codeWidth : crop[3] * 3 / 5;
+        // 静区只留 1 个模块，640x480 的扫描框只有 120 像素高，QR 码每个模块仍有约 3 个像素
+        Map<EncodeHintType, Object> hints = new EnumMap<EncodeHintType, Object>(EncodeHintType.class);
+        hints.put(EncodeHintType.MARGIN, 1);
+        BitMatrix matrix = new MultiFormatWriter().encode(text(format), barcodeFormat,
+                codeWidth, codeHeight, hints);
+        int codeLeft = crop[0] + (crop[2] - matrix.getWidth()) / 2;
+        int codeTop = crop[1] + (crop[3] - matrix.getHeight()) / 2;
+
+        Random random = new Random(format.hashCode() * 31L + size.hashCode());
+        int textureWidth = (rotatedWidth + 7) / 8;
+        int[] texture = new int[textureWidth * ((rotatedHeight + 7) / 8)];
+        for (int i = 0; i < texture.length; i++) {
+            texture[i] = random.nextInt(7) - 3;
+        }
+        int[] portrait = new int[rotatedWidth * rotatedHeight];
+        for (int y = 0; y < rotatedHeight; y++) {
+            for (int x = 0; x < rotatedWidth; x++) {
+                // 左上亮、右下暗的光照，条码为深灰而不是纯黑
+                int light = 210 - 50 * (x + y) / (rotatedWidth + rotatedHeight);
+                int mx = x - codeLeft;
+                int my = y - codeTop;
+                boolean dark = mx >= 0 && my >= 0 && mx < matrix.getWidth()
+                        && my < matrix.getHeight() && matrix.get(mx, my);
+                portrait[y * rotatedWidth + x] = dark ? light / 4 : light;
+            }
+        }
+
+        byte[] data = new byte[width * height * 3 / 2];
+        for (int y = 0; y < rotatedHeight; y++) {
+            for (int x = 0; x < rotatedWidth; x++) {
+                // 3x3 均值模糊，再加每 8x8 像素一块的 ±3 的纹理（逐像素的噪声会使语料大到不便提交）
+                int sum = 0;
+                int count = 0;
+                for (int dy = -1; dy <= 1; dy++) {
+                    for (int dx = -1; dx <= 1; dx++) {
+                        int sx = x + dx;
+                        int sy = y + dy;
+                        if (sx >= 0 && sy >= 0 && sx < rotatedWidth && sy < rotatedHeight) {
+                            sum += portrait[sy * rotatedWidth + sx];
+                            count++;
+                        }
+                    }
+                }
+                int value = sum / count + texture[(y >> 3) * textureWidth + (x >> 3)];
+                // 竖屏的 (x, y) 对应横屏原始帧的第 height - 1 - x 行、第 y 列
+                data[(height - 1 - x) * width + y] = (byte) Math.max(0, Math.min(255, value));
+            }
+        }
+        for (int i = width * height; i < data.length; i++) {
+            data[i] = (byte) 128;
+        }
+        return data;
+    }
+
+    public static void main(String[] args) throws IOException, WriterException {
+        File dir = new File(args.length > 0 ? args[0] : "src/test/resources/corpus");
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        for (String format : FORMATS) {
+            for (String size : SIZES) {
+                File file = new File(dir, format + "_" + size + ".nv21.gz");
+                OutputStream out = new GZIPOutputStream(new FileOutputStream(file));
+                try {
+                    out.write(render(format, size));
+                } finally {
+                    out.close();
+                }
+                System.out.println(file + " " + file.length());
+            }
+        }
+    }
+
+}
@@ -0,0 +1,32 @@
+package com.liangyn.zxing;
+
+import com.google.zxing.Result;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * 基准测试的每一帧都能按预览帧的方式解码，DecodeBenchmark 测得的是识别成功的路径
+ */
+public class Nv21CorpusTest {
+
+    @Test
+    public void everyFrameDecodes() throws Exception {
+        for (String format : Nv21Corpus.FORMATS) {
+            for (String size : Nv21Corpus.SIZES) {
+                byte[] data = Nv21Corpus.load(format, size);
+                int width = Nv21Corpus.width(size);
+                int height = Nv21Corpus.height(size);
+                int[] crop = Nv21Corpus.crop(width, height);
+                Result result = new DecodeEngine(null, null, null).decode(data, width, height,
+                        90, crop[0], crop[1], crop[2], crop[3]);
+                assertNotNull(format + " " + size, result);
+                assertEquals(format + " " + size, format, result.getBarcodeFormat().name());
+                assertEquals(format + " " + size, Nv21Corpus.text(format), result.getText());
+            }
+        }
+    }
+
+}
@@ -0,0 +1,80 @@
+package com.liangyn.zxing;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 整帧旋转 90 度：原 DecodeHandler 的逐像素循环与 {@link PlanarYUVRotator} 的分块转置
+ * 说明：originalLoop 与原代码相同，每帧新建数组；originalLoopReused 复用数组，只比较循环本身。
+ * 在 JVM 上运行，结果反映缓存行为的差异，设备上的绝对耗时需另行测量。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlanarYUVRotatorBenchmark {
+
+    @Param({"640x480", "1280x720", "1920x1080"})
+    public String size;
+
+    @Param({"32"})
+    public int blockSize;
+
+    private int width;
+    private int height;
+    private byte[] data;
+    private byte[] output;
+
+    @Setup
+    public void setUp() {
+        int separator = size.indexOf('x');
+        width = Integer.parseInt(size.substring(0, separator));
+        height = Integer.parseInt(size.substring(separator + 1));
+        data = new byte[width * height * 3 / 2];
+        new Random(width).nextBytes(data);
+        output = new byte[width * height];
+    }
+
+    @Benchmark
+    public byte[] originalLoop() {
+        byte[] rotatedData = new byte[width * height];
+        RotationFixtures.rotate90(data, width, height, rotatedData);
+        return rotatedData;
+    }
+
+    @Benchmark
+    public byte[] originalLoopReused() {
+        RotationFixtures.rotate90(data, width, height, output);
+        return output;
+    }
+
+    @Benchmark
+    public byte[] tiled() {
+        PlanarYUVRotator.rotate(data, width, height, 90, 0, 0, height, width, output, blockSize);
+        return output;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PlanarYUVRotatorBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+}
@@ -0,0 +1,115 @@
+package com.liangyn.zxing;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 分块旋转与逐像素旋转的结果一致：各旋转角度、不能整除图像的分块边长、任意裁剪区域
+ * 说明：180/270 度的参照结果由原来的 90 度旋转循环重复执行得到，见 {@link RotationFixtures}。
+ */
+public class PlanarYUVRotatorTest {
+
+    private static final int[] ROTATIONS = {0, 90, 180, 270};
+
+    /**
+     * 1 为逐像素，7、13、33 不能整除任何测试尺寸，1000 大于整幅图像
+     */
+    private static final int[] BLOCK_SIZES = {1, 7, 13, 32, 33, 1000};
+
+    private final Random random = new Random(RotationFixtures.SEED);
+
+    @Test
+    public void fullFrameAllRotations() {
+        int[][] sizes = {{640, 480}, {37, 23}, {1, 9}};
+        for (int[] size : sizes) {
+            byte[] data = randomFrame(size[0], size[1]);
+            for (int rotation : ROTATIONS) {
+                byte[] expected = RotationFixtures.rotate(data, size[0], size[1], rotation);
+                byte[] output = new byte[size[0] * size[1]];
+                PlanarYUVRotator.rotate(data, size[0], size[1], rotation, output);
+                assertArrayEquals(size[0] + "x" + size[1] + " rotation " + rotation,
+                        expected, output);
+            }
+        }
+    }
+
+    @Test
+    public void blockSizesThatDoNotDivideTheFrame() {
+        int width = 250;
+        int height = 146;
+        byte[] data = randomFrame(width, height);
+        for (int rotation : ROTATIONS) {
+            int rotatedWidth = PlanarYUVRotator.rotatedWidth(width, height, rotation);
+            int rotatedHeight = PlanarYUVRotator.rotatedHeight(width, height, rotation);
+            byte[] expected = RotationFixtures.rotate(data, width, height, rotation);
+            for (int blockSize : BLOCK_SIZES) {
+                byte[] output = new byte[width * height];
+                PlanarYUVRotator.rotate(data, width, height, rotation, 0, 0,
+                        rotatedWidth, rotatedHeight, output, blockSize);
+                assertArrayEquals("rotation " + rotation + " block " + blockSize,
+                        expected, output);
+            }
+        }
+    }
+
+    /**
+     * 随机的裁剪区域，包括贴着图像边缘和只有一行、一列的区域
+     */
+    @Test
+    public void randomCrops() {
+        int width = 101;
+        int height = 67;
+        byte[] data = randomFrame(width, height);
+        for (int rotation : ROTATIONS) {
+            int rotatedWidth = PlanarYUVRotator.rotatedWidth(width, height, rotation);
+            int rotatedHeight = PlanarYUVRotator.rotatedHeight(width, height, rotation);
+            byte[] rotated = RotationFixtures.rotate(data, width, height, rotation);
+            for (int i = 0; i < 50; i++) {
+                int left = random.nextInt(rotatedWidth);
+                int top = random.nextInt(rotatedHeight);
+                int cropWidth = 1 + random.nextInt(rotatedWidth - left);
+                int cropHeight = 1 + random.nextInt(rotatedHeight - top);
+                int blockSize = BLOCK_SIZES[random.nextInt(BLOCK_SIZES.length)];
+                byte[] output = new byte[cropWidth * cropHeight];
+                PlanarYUVRotator.rotate(data, width, height, rotation, left, top,
+                        cropWidth, cropHeight, output, blockSize);
+                assertArrayEquals("rotation " + rotation + " crop " + left + "," + top + ","
+                                + cropWidth + "," + cropHeight + " block " + blockSize,
+                        RotationFixtures.crop(rotated, rotatedWidth, left, top, cropWidth, cropHeight), output);
+            }
+        }
+    }
+
+    @Test
+    public void rotatedSize() {
+        assertEquals(480, PlanarYUVRotator.rotatedWidth(640, 480, 90));
+        assertEquals(640, PlanarYUVRotator.rotatedHeight(640, 480, 270));
+        assertEquals(640, PlanarYUVRotator.rotatedWidth(640, 480, 180));
+        assertEquals(480, PlanarYUVRotator.rotatedHeight(640, 480, 0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unsupportedRotation() {
+        PlanarYUVRotator.rotate(new byte[16], 4, 4, 45, new byte[16]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void cropOutsideRotatedImage() {
+        // 旋转 90 度后宽为 4，高为 8
+        PlanarYUVRotator.rotate(new byte[32], 8, 4, 90, 0, 0, 8, 4, new byte[32], 4);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nonPositiveBlockSize() {
+        PlanarYUVRotator.rotate(new byte[16], 4, 4, 90, 0, 0, 4, 4, new byte[16], 0);
+    }
+
+    private byte[] randomFrame(int width, int height) {
+        return RotationFixtures.randomFrame(random, width, height);
+    }
+
+}
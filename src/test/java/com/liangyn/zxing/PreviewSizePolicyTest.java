@@ -0,0 +1,91 @@
+package com.liangyn.zxing;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * 用实际设备上采集的 preview-size-values 验证预览尺寸的选择
+ */
+public class PreviewSizePolicyTest {
+
+    /**
+     * 扫描框的尺寸（dp），同 CameraManager.FRAME_WIDTH_DIP、FRAME_HEIGHT_DIP
+     */
+    private static final int FRAME_WIDTH_DIP = 280;
+    private static final int FRAME_HEIGHT_DIP = 120;
+
+    private static final String NEXUS_5 = "1920x1080,1280x960,1280x720,800x600,800x480,"
+            + "768x432,720x480,640x480,576x432,480x320,384x288,352x288,320x240,240x160,176x144";
+    private static final String GALAXY_S3 = "1280x720,1920x1080,1088x1088,1056x864,960x720,"
+            + "800x480,720x480,640x480,352x288,320x240,176x144";
+    private static final String HTC_480X800 = "1280x720,800x480,768x432,720x480,640x480,"
+            + "576x432,480x320,400x240,384x288,352x288,320x240,176x144";
+    private static final String TALL_1080X2280 = "4032x3024,1920x1080,1440x1080,1280x720,"
+            + "1280x960,1024x768,720x480,640x480,352x288,320x240,176x144";
+
+    @Test
+    public void nexus5() {
+        assertArrayEquals(new int[]{800, 480}, choose(NEXUS_5, 1080, 1920, 3f));
+    }
+
+    @Test
+    public void galaxyS3() {
+        assertArrayEquals(new int[]{800, 480}, choose(GALAXY_S3, 720, 1280, 2f));
+    }
+
+    @Test
+    public void htc480x800() {
+        assertArrayEquals(new int[]{720, 480}, choose(HTC_480X800, 480, 800, 1.5f));
+    }
+
+    /**
+     * 没有与 19:9 屏幕相同宽高比的尺寸，以最接近的 16:9 为准
+     */
+    @Test
+    public void tallScreen() {
+        assertArrayEquals(new int[]{1280, 720}, choose(TALL_1080X2280, 1080, 2280, 2.75f));
+    }
+
+    /**
+     * 都达不到分辨率要求时在预算内选最大的
+     */
+    @Test
+    public void largestInBudgetWhenResolutionUnreachable() {
+        assertArrayEquals(new int[]{640, 480}, choose("640x480,320x240,176x144", 1080, 1920, 3f));
+    }
+
+    @Test
+    public void parseSizesSkipsMalformedEntries() {
+        int[][] sizes = PreviewSizePolicy.parseSizes(
+                " 1280x720 ,bogus,x480,640x,0x480,-640x480,12a0x720,800x480x2,640x480");
+        assertEquals(2, sizes.length);
+        assertArrayEquals(new int[]{1280, 720}, sizes[0]);
+        assertArrayEquals(new int[]{640, 480}, sizes[1]);
+    }
+
+    @Test
+    public void parseSizesEmpty() {
+        assertEquals(0, PreviewSizePolicy.parseSizes("").length);
+        assertEquals(0, PreviewSizePolicy.parseSizes(" , ,").length);
+    }
+
+    @Test
+    public void noParsableSize() {
+        assertNull(choose("bogus, x", 720, 1280, 2f));
+        assertNull(choose("", 720, 1280, 2f));
+    }
+
+    private static int[] choose(String previewSizeValues, int screenWidth, int screenHeight,
+                                float density) {
+        return PreviewSizePolicy.findBestPreviewSize(previewSizeValues, screenWidth, screenHeight,
+                (int) (FRAME_WIDTH_DIP * density + 0.5f), (int) (FRAME_HEIGHT_DIP * density + 0.5f),
+                PreviewSizePolicy.DEFAULT_MODULES_ACROSS,
+                PreviewSizePolicy.DEFAULT_MIN_PIXELS_PER_MODULE,
+                PreviewSizePolicy.DEFAULT_MAX_CROP_PIXELS,
+                PreviewSizePolicy.DEFAULT_MIN_PREVIEW_HEIGHT);
+    }
+
+}
@@ -0,0 +1,116 @@
+package com.liangyn.zxing;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.Result;
+import com.google.zxing.ResultPoint;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * 多帧一致，默认一维码 3 帧中 2 帧一致、二维码单帧即采用；批量模式下先一致的条码不会使其他条码被丢弃
+ */
+public class ResultConsensusTest {
+
+    private static final Result QR = result("https://github.com/zxing/zxing", BarcodeFormat.QR_CODE);
+    private static final Result EAN_A = result("6901234567892", BarcodeFormat.EAN_13);
+    private static final Result EAN_B = result("4006381333931", BarcodeFormat.EAN_13);
+
+    @Test
+    public void singleResultUsesPerFormatRule() {
+        ResultConsensus consensus = new ResultConsensus();
+        assertNull(consensus.onFrame(frame(EAN_A)));
+        assertTexts(consensus.onFrame(frame(EAN_A)), EAN_A);
+        assertTexts(consensus.onFrame(frame(QR)), QR);
+    }
+
+    /**
+     * 一个 QR 码和两个 EAN-13：QR 码第一帧就一致，仍要等 EAN-13 一致后一起返回
+     */
+    @Test
+    public void batchWaitsForCodesThatHaveNotAgreedYet() {
+        ResultConsensus consensus = new ResultConsensus();
+        assertNull(consensus.onBatchFrame(frame(QR, EAN_A, EAN_B)));
+        Result[] agreed = consensus.onBatchFrame(frame(QR, EAN_A, EAN_B));
+        assertTexts(agreed, QR, EAN_A, EAN_B);
+        // 一致的一维码附上了两帧的结果点
+        assertEquals(4, agreed[1].getResultPoints().length);
+    }
+
+    @Test
+    public void batchIncludesCodeThatAgreesLater() {
+        ResultConsensus consensus = new ResultConsensus();
+        assertNull(consensus.onBatchFrame(frame(EAN_A, EAN_B)));
+        assertNull(consensus.onBatchFrame(frame(EAN_A)));
+        assertTexts(consensus.onBatchFrame(frame(EAN_B)), EAN_A, EAN_B);
+    }
+
+    /**
+     * 第二个条码在窗口内再也凑不够帧数时，已一致的条码才返回
+     */
+    @Test
+    public void batchReturnsOnceOthersCanNoLongerAgree() {
+        ResultConsensus consensus = new ResultConsensus();
+        assertNull(consensus.onBatchFrame(frame(EAN_A, EAN_B)));
+        assertNull(consensus.onBatchFrame(frame(EAN_A)));
+        assertTexts(consensus.onBatchFrame(frame(EAN_A)), EAN_A);
+    }
+
+    @Test
+    public void failedFramesCompleteTheBatch() {
+        ResultConsensus consensus = new ResultConsensus();
+        assertNull(consensus.onBatchFrame(frame(QR, EAN_A)));
+        assertNull(consensus.onBatchFrame(null));
+        assertTexts(consensus.onBatchFrame(null), QR);
+    }
+
+    /**
+     * 每帧都有新的误读时，第一个条码一致后最多再等待最长窗口的帧数
+     */
+    @Test
+    public void misreadsDoNotHoldTheBatchForever() {
+        ResultConsensus consensus = new ResultConsensus();
+        assertNull(consensus.onBatchFrame(frame(QR, result("0000000000001",
+                BarcodeFormat.EAN_13))));
+        assertNull(consensus.onBatchFrame(frame(QR, result("0000000000002",
+                BarcodeFormat.EAN_13))));
+        assertTexts(consensus.onBatchFrame(frame(QR, result("0000000000003",
+                BarcodeFormat.EAN_13))), QR);
+    }
+
+    @Test
+    public void nextBatchStartsFromScratch() {
+        ResultConsensus consensus = new ResultConsensus();
+        assertTexts(consensus.onBatchFrame(frame(QR)), QR);
+        assertNull(consensus.onBatchFrame(frame(EAN_A)));
+        assertTexts(consensus.onBatchFrame(frame(EAN_A)), EAN_A);
+    }
+
+    private static Result[] frame(Result... results) {
+        return results;
+    }
+
+    private static Result result(String text, BarcodeFormat format) {
+        return new Result(text, null,
+                new ResultPoint[]{new ResultPoint(0f, 0f), new ResultPoint(10f, 0f)}, format);
+    }
+
+    private static void assertTexts(Result[] actual, Result... expected) {
+        String[] expectedTexts = new String[expected.length];
+        for (int i = 0; i < expected.length; i++) {
+            expectedTexts[i] = expected[i].getText();
+        }
+        String[] actualTexts = null;
+        if (actual != null) {
+            actualTexts = new String[actual.length];
+            for (int i = 0; i < actual.length; i++) {
+                actualTexts[i] = actual[i].getText();
+            }
+        }
+        assertArrayEquals(expectedTexts, actualTexts);
+    }
+
+}
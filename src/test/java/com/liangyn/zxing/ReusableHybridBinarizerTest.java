@@ -0,0 +1,156 @@
+package com.liangyn.zxing;
+
+import com.google.zxing.Binarizer;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.common.BitArray;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.HybridBinarizer;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * ReusableHybridBinarizer 与 zxing 3.2.1 的 HybridBinarizer（及其父类 GlobalHistogramBinarizer）
+ * 逐位一致，包括识别失败时同样抛出 NotFoundException
+ * 说明：所有用例共用一个 Workspace，尺寸忽大忽小，检查上一张图留下的缓冲不影响结果。
+ */
+public class ReusableHybridBinarizerTest {
+
+    /**
+     * 包括低于 40 像素、改用全局直方图的尺寸，以及不是 8 的倍数的尺寸
+     */
+    private static final int[][] SIZES = {
+            {640, 480}, {2, 2}, {3, 50}, {39, 39}, {40, 40}, {39, 120}, {120, 39}, {41, 57},
+            {333, 211}, {7, 1001}, {1001, 7}, {64, 64}, {17, 400}, {400, 17}, {1, 40}
+    };
+
+    private final ReusableHybridBinarizer.Workspace workspace =
+            new ReusableHybridBinarizer.Workspace();
+    private BitArray reusedRow;
+
+    @Test
+    public void randomImages() throws Exception {
+        Random random = new Random(RotationFixtures.SEED);
+        for (int[] size : SIZES) {
+            int width = size[0];
+            int height = size[1];
+            // 完全随机的像素、随机明暗块加噪声（类似条码），以及几乎没有对比度的图像
+            byte[] noise = new byte[width * height];
+            random.nextBytes(noise);
+            assertSame(noise, width, height, "noise");
+            assertSame(blocks(random, width, height, 255), width, height, "blocks");
+            assertSame(blocks(random, width, height, 16), width, height, "flat");
+        }
+    }
+
+    /**
+     * 带偏移的裁剪区域，getRow/getMatrix 走需要逐行复制的分支
+     */
+    @Test
+    public void croppedImages() throws Exception {
+        Random random = new Random(RotationFixtures.SEED);
+        int dataWidth = 301;
+        int dataHeight = 203;
+        byte[] data = blocks(random, dataWidth, dataHeight, 255);
+        for (int i = 0; i < 20; i++) {
+            int width = 1 + random.nextInt(dataWidth);
+            int height = 1 + random.nextInt(dataHeight);
+            int left = random.nextInt(dataWidth - width + 1);
+            int top = random.nextInt(dataHeight - height + 1);
+            assertSame(new PlanarYUVLuminanceSource(data, dataWidth, dataHeight,
+                    left, top, width, height), "crop " + left + "," + top + " " + width + "x" + height);
+        }
+    }
+
+    @Test
+    public void corpusFrames() throws Exception {
+        for (String format : Nv21Corpus.FORMATS) {
+            for (String size : Nv21Corpus.SIZES) {
+                byte[] data = Nv21Corpus.load(format, size);
+                int width = Nv21Corpus.width(size);
+                int height = Nv21Corpus.height(size);
+                assertSame(new PlanarYUVLuminanceSource(data, width, height, 0, 0, width, height),
+                        format + " " + size);
+                // 扫描框在原始帧中的位置，旋转前宽高互换
+                int[] crop = Nv21Corpus.crop(width, height);
+                assertSame(new PlanarYUVLuminanceSource(data, width, height,
+                        crop[1], height - crop[0] - crop[2], crop[3], crop[2]),
+                        format + " " + size + " viewfinder");
+            }
+        }
+    }
+
+    private void assertSame(byte[] luminances, int width, int height, String name)
+            throws Exception {
+        assertSame(new PlanarYUVLuminanceSource(luminances, width, height, 0, 0, width, height),
+                name + " " + width + "x" + height);
+    }
+
+    private void assertSame(LuminanceSource source, String name) throws Exception {
+        int width = source.getWidth();
+        Binarizer expected = new HybridBinarizer(source);
+        Binarizer actual = new ReusableHybridBinarizer(source, workspace);
+
+        BitMatrix expectedMatrix = null;
+        NotFoundException expectedError = null;
+        try {
+            expectedMatrix = expected.getBlackMatrix();
+        } catch (NotFoundException e) {
+            expectedError = e;
+        }
+        try {
+            BitMatrix actualMatrix = actual.getBlackMatrix();
+            assertEquals(name + " matrix", expectedMatrix, actualMatrix);
+        } catch (NotFoundException e) {
+            assertEquals(name + " matrix not found", expectedError, e);
+        }
+
+        if (width < 2) {
+            // 两者读第二个像素时都越界，getBlackRow 只对宽度至少为 2 的行有意义
+            return;
+        }
+        for (int y = 0; y < source.getHeight(); y++) {
+            // 复用的行比本图宽时两者都只清零、不重新分配，传入同样大小的行
+            if (reusedRow == null || reusedRow.getSize() < width) {
+                reusedRow = new BitArray(width);
+            }
+            BitArray expectedRow = null;
+            expectedError = null;
+            try {
+                expectedRow = expected.getBlackRow(y, new BitArray(reusedRow.getSize()));
+            } catch (NotFoundException e) {
+                expectedError = e;
+            }
+            try {
+                BitArray actualRow = actual.getBlackRow(y, reusedRow);
+                assertEquals(name + " row " + y, expectedRow, actualRow);
+            } catch (NotFoundException e) {
+                assertEquals(name + " row " + y + " not found", expectedError, e);
+            }
+        }
+    }
+
+    /**
+     * 随机的 1 到 8 像素宽的明暗竖条，每个像素加 ±8 的噪声，明暗之差为 contrast
+     */
+    private static byte[] blocks(Random random, int width, int height, int contrast) {
+        byte[] data = new byte[width * height];
+        int base = random.nextInt(256 - contrast + 1);
+        for (int x = 0; x < width; ) {
+            int run = 1 + random.nextInt(8);
+            int value = random.nextBoolean() ? base : base + contrast - 1;
+            for (int end = Math.min(width, x + run); x < end; x++) {
+                for (int y = 0; y < height; y++) {
+                    int noisy = value + random.nextInt(17) - 8;
+                    data[y * width + x] = (byte) Math.max(0, Math.min(255, noisy));
+                }
+            }
+        }
+        return data;
+    }
+
+}
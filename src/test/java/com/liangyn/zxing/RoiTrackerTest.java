@@ -0,0 +1,78 @@
+package com.liangyn.zxing;
+
+import com.google.zxing.ResultPoint;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 跟踪区域的尺寸在手持抖动下保持不变，解码线程可以一直复用同样长度的缓冲
+ */
+public class RoiTrackerTest {
+
+    private static final int FULL_WIDTH = 1080;
+    private static final int FULL_HEIGHT = 1920;
+
+    @Test
+    public void jitterKeepsTheSameSize() {
+        RoiTracker tracker = new RoiTracker();
+        Random random = new Random(RotationFixtures.SEED);
+        int width = -1;
+        int height = -1;
+        for (int i = 0; i < 60; i++) {
+            int dx = random.nextInt(7) - 3;
+            int dy = random.nextInt(7) - 3;
+            // 定位图形中心相距约 150 像素的 QR 码
+            track(tracker, 465 + dx, 885 + dy, 465 + dx + random.nextInt(3), 1035 + dy,
+                    615 + dx, 885 + dy + random.nextInt(3));
+            if (i == 0) {
+                width = tracker.getWidth();
+                height = tracker.getHeight();
+            }
+            assertEquals(width, tracker.getWidth());
+            assertEquals(height, tracker.getHeight());
+            assertInside(tracker);
+        }
+        assertEquals(0, width % 32);
+        assertEquals(0, height % 32);
+    }
+
+    /**
+     * 靠近边缘时区域平移回完整区域内，尺寸不变
+     */
+    @Test
+    public void edgeShiftsInsteadOfShrinking() {
+        RoiTracker tracker = new RoiTracker();
+        track(tracker, 400, 800, 400, 1000, 600, 800);
+        int width = tracker.getWidth();
+        int height = tracker.getHeight();
+        track(tracker, 10, 10, 10, 210, 210, 10);
+        assertEquals(width, tracker.getWidth());
+        assertEquals(height, tracker.getHeight());
+        assertEquals(0, tracker.getLeft());
+        assertEquals(0, tracker.getTop());
+        assertInside(tracker);
+    }
+
+    private static void track(RoiTracker tracker, float... coordinates) {
+        tracker.isTracking(FULL_WIDTH, FULL_HEIGHT);
+        tracker.beginFrame();
+        ResultPoint[] points = new ResultPoint[coordinates.length / 2];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = new ResultPoint(coordinates[2 * i], coordinates[2 * i + 1]);
+        }
+        tracker.endFrame(points);
+        assertTrue(tracker.isTracking(FULL_WIDTH, FULL_HEIGHT));
+    }
+
+    private static void assertInside(RoiTracker tracker) {
+        assertTrue(tracker.getLeft() >= 0 && tracker.getTop() >= 0);
+        assertTrue(tracker.getLeft() + tracker.getWidth() <= FULL_WIDTH);
+        assertTrue(tracker.getTop() + tracker.getHeight() <= FULL_HEIGHT);
+    }
+
+}
@@ -0,0 +1,71 @@
+package com.liangyn.zxing;
+
+import java.util.Random;
+
+/**
+ * 旋转、裁剪相关测试的参照实现和随机帧
+ * 说明：参照结果都由原 DecodeHandler 的逐像素旋转循环得到，不依赖被测代码的坐标换算。
+ */
+final class RotationFixtures {
+
+    /**
+     * 随机帧的种子，固定以便失败时能复现
+     */
+    static final long SEED = 20161017L;
+
+    private RotationFixtures() {
+    }
+
+    /**
+     * 原 DecodeHandler 中的旋转：每帧新建数组，逐像素顺时针旋转 90 度
+     */
+    static byte[] rotate90(byte[] data, int width, int height) {
+        byte[] rotatedData = new byte[width * height];
+        rotate90(data, width, height, rotatedData);
+        return rotatedData;
+    }
+
+    /**
+     * 同上，写入 rotatedData，只读写 Y 平面
+     */
+    static void rotate90(byte[] data, int width, int height, byte[] rotatedData) {
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                rotatedData[x * height + height - y - 1] = data[x + y * width];
+            }
+        }
+    }
+
+    /**
+     * 用原来的逐像素循环顺时针旋转 rotation / 90 次
+     */
+    static byte[] rotate(byte[] data, int width, int height, int rotation) {
+        byte[] result = new byte[width * height];
+        System.arraycopy(data, 0, result, 0, result.length);
+        for (int i = 0; i < rotation / 90; i++) {
+            result = rotate90(result, width, height);
+            int swap = width;
+            width = height;
+            height = swap;
+        }
+        return result;
+    }
+
+    static byte[] crop(byte[] image, int imageWidth, int left, int top, int width, int height) {
+        byte[] result = new byte[width * height];
+        for (int y = 0; y < height; y++) {
+            System.arraycopy(image, (top + y) * imageWidth + left, result, y * width, width);
+        }
+        return result;
+    }
+
+    /**
+     * 随机的 NV21 帧，Y 平面之后是半尺寸的 UV 平面
+     */
+    static byte[] randomFrame(Random random, int width, int height) {
+        byte[] data = new byte[width * height * 3 / 2];
+        random.nextBytes(data);
+        return data;
+    }
+
+}